@@ -19,7 +19,9 @@ import static com.github.alexfalappa.nbspringboot.PrefConstants.PREF_VM_OPTS;
 import static com.github.alexfalappa.nbspringboot.PrefConstants.PREF_VM_OPTS_LAUNCH;
 import com.github.alexfalappa.nbspringboot.cfgprops.completion.items.FileObjectCompletionItem;
 import com.github.alexfalappa.nbspringboot.cfgprops.completion.items.ValueCompletionItem;
+import com.github.alexfalappa.nbspringboot.projects.ArtifactIndex;
 import com.github.alexfalappa.nbspringboot.projects.customizer.BootPanel;
+import com.github.alexfalappa.nbspringboot.projects.service.impl.EnumValues;
 import com.github.alexfalappa.nbspringboot.projects.service.impl.HintSupport;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
@@ -30,7 +32,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashSet;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -40,7 +41,6 @@ import static java.util.logging.Level.WARNING;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import static java.util.regex.Pattern.compile;
-import java.util.stream.Stream;
 import javax.swing.AbstractButton;
 import javax.swing.DefaultButtonModel;
 import javax.swing.Icon;
@@ -48,9 +48,6 @@ import javax.swing.ImageIcon;
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.UIManager;
-import org.apache.maven.artifact.Artifact;
-import org.apache.maven.model.Dependency;
-import org.apache.maven.project.MavenProject;
 import org.netbeans.api.java.classpath.ClassPath;
 import org.netbeans.api.java.project.JavaProjectConstants;
 import org.netbeans.api.project.FileOwnerQuery;
@@ -123,6 +120,40 @@ public final class Utils {
         return PATTERN_JAVATYPE.matcher(type).replaceAll("$2");
     }
 
+    /**
+     * Maps any relaxed spelling of a configuration property name to a single canonical form.
+     * <p>
+     * The canonical form is lowercase and has no dashes nor underscores, so that for example {@code server.context-path},
+     * {@code server.contextPath}, {@code server.context_path} and {@code SERVER.CONTEXT_PATH} all map to
+     * {@code server.contextpath}.
+     *
+     * @param name a property name
+     * @return the canonical property name, the given string itself when already canonical
+     */
+    public static String canonicalPropertyName(String name) {
+        final int len = name.length();
+        int i = 0;
+        // fast path: most names are already canonical
+        while (i < len && isCanonicalChar(name.charAt(i))) {
+            i++;
+        }
+        if (i == len) {
+            return name;
+        }
+        StringBuilder sb = new StringBuilder(len).append(name, 0, i);
+        for (; i < len; i++) {
+            final char c = name.charAt(i);
+            if (c != '-' && c != '_') {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isCanonicalChar(char c) {
+        return c != '-' && c != '_' && Character.toLowerCase(c) == c;
+    }
+
     /**
      * Builds an HTML formatted string with details on a Spring Boot configuration property extracted from its
      * {@code ItemMetadata}.
@@ -303,20 +334,8 @@ public final class Utils {
                 });
     }
 
-    public static void completeEnum(ClassPath cp, String dataType, String filter, Consumer<ValueHint> consumer) {
-        try {
-            Object[] enumvals = cp.getClassLoader(true).loadClass(dataType).getEnumConstants();
-            if (enumvals != null) {
-                for (Object val : enumvals) {
-                    final String valName = val.toString().toLowerCase();
-                    if (filter == null || valName.contains(filter)) {
-                        consumer.accept(createEnumHint(valName));
-                    }
-                }
-            }
-        } catch (ClassNotFoundException ex) {
-            // enum not available in project classpath, no completion possible
-        }
+    public static void completeEnum(ClassLoader cl, String dataType, String filter, Consumer<ValueHint> consumer) {
+        EnumValues.of(cl, dataType).forEachMatching(filter, name -> consumer.accept(createHint(name)));
     }
 
     public static void completeSpringResource(FileObject resourcesFolder, String filter, CompletionResultSet completionResultSet,
@@ -403,20 +422,6 @@ public final class Utils {
         return vh;
     }
 
-    /**
-     * Create a {@code ValueHint} object from the given java enumeration value.
-     * <p>
-     * Created hint has no description and has a Spring Boot property name canonical format.
-     *
-     * @param value the value to use
-     * @return a ValueHint object
-     */
-    public static ValueHint createEnumHint(String value) {
-        ValueHint vh = new ValueHint();
-        vh.setValue(value.replaceAll("_", "-"));
-        return vh;
-    }
-
     /**
      * Create a {@code ValueHint} object from the given value and description.
      *
@@ -490,14 +495,7 @@ public final class Utils {
      * @return true if the project has a dependency artifactId containing the search string
      */
     public static boolean dependencyArtifactIdContains(NbMavenProject nbMvn, String search) {
-        MavenProject mPrj = nbMvn.getMavenProject();
-        for (Object o : mPrj.getDependencies()) {
-            Dependency d = (Dependency) o;
-            if (d.getArtifactId().contains(search)) {
-                return true;
-            }
-        }
-        return false;
+        return ArtifactIndex.of(nbMvn).declaredArtifactIdContains(search);
     }
 
     /**
@@ -507,21 +505,14 @@ public final class Utils {
      * @return the version of the found 'spring-boot-starter' artifact
      */
     public static Optional<String> getSpringBootVersion(Project project) {
-        return Stream.of(project)
-                .filter(Objects::nonNull)
-                .filter(NbMavenProjectImpl.class::isInstance)
-                .map(NbMavenProjectImpl.class::cast)
-                // All dependencies that this project has, including transitive ones.
-                .flatMap(p -> ((Set<Artifact>) p.getOriginalMavenProject().getArtifacts()).stream())
-                .filter(Utils::isSpringBootStarterArtifact)
-                .map(Artifact::getVersion)
-                .peek(springBootVersion -> logger.log(FINE, "Spring Boot version {0} detected", springBootVersion))
-                .findFirst();
-    }
-
-    private static boolean isSpringBootStarterArtifact(Artifact artifact) {
-        return "org.springframework.boot".equals(artifact.getGroupId())
-                && "spring-boot-starter".equals(artifact.getArtifactId());
+        if (!(project instanceof NbMavenProjectImpl)) {
+            return Optional.empty();
+        }
+        // all dependencies that this project has, including transitive ones
+        final NbMavenProject nbMvn = ((NbMavenProjectImpl) project).getProjectWatcher();
+        final Optional<String> ret = ArtifactIndex.of(nbMvn).versionOf("org.springframework.boot", "spring-boot-starter");
+        ret.ifPresent(springBootVersion -> logger.log(FINE, "Spring Boot version {0} detected", springBootVersion));
+        return ret;
     }
 
     /**
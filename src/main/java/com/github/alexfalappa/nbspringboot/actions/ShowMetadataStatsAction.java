@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.actions;
+
+import java.awt.Dialog;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JButton;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+import org.openide.DialogDescriptor;
+import org.openide.DialogDisplayer;
+import org.openide.awt.ActionID;
+import org.openide.awt.ActionReference;
+import org.openide.awt.ActionRegistration;
+import org.openide.util.NbBundle.Messages;
+
+import com.github.alexfalappa.nbspringboot.projects.service.impl.MetadataStats;
+
+/**
+ * Debug action to show the statistics of the Spring Boot configuration metadata services.
+ * <p>
+ * The same statistics are published over JMX by {@link MetadataStats}.
+ *
+ * @author Alessandro Falappa
+ */
+@ActionID(
+        category = "Tools",
+        id = "com.github.alexfalappa.nbspringboot.actions.ShowMetadataStatsAction"
+)
+@ActionRegistration(
+        displayName = "#CTL_ShowMetadataStatsAction"
+)
+@ActionReference(path = "Menu/Tools", position = 1810)
+@Messages({
+    "CTL_ShowMetadataStatsAction=Spring Boot Metadata Statistics",
+    "LBL_Refresh=Refresh",
+    "LBL_Reset=Reset"
+})
+public final class ShowMetadataStatsAction implements ActionListener {
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        final MetadataStats stats = MetadataStats.getDefault();
+        final JTextArea taReport = new JTextArea(stats.getReport(), 14, 60);
+        taReport.setEditable(false);
+        taReport.setFont(new Font(Font.MONOSPACED, Font.PLAIN, taReport.getFont().getSize()));
+        final JButton bRefresh = new JButton(Bundle.LBL_Refresh());
+        final JButton bReset = new JButton(Bundle.LBL_Reset());
+        DialogDescriptor dd = new DialogDescriptor(new JScrollPane(taReport), Bundle.CTL_ShowMetadataStatsAction(), false,
+                new Object[]{bRefresh, bReset, DialogDescriptor.CLOSED_OPTION}, DialogDescriptor.CLOSED_OPTION,
+                DialogDescriptor.DEFAULT_ALIGN, null, evt -> {
+                    if (evt.getSource() == bReset) {
+                        stats.reset();
+                    }
+                    taReport.setText(stats.getReport());
+                });
+        dd.setClosingOptions(new Object[]{DialogDescriptor.CLOSED_OPTION});
+        final Dialog dialog = DialogDisplayer.getDefault().createDialog(dd);
+        dialog.setVisible(true);
+    }
+}
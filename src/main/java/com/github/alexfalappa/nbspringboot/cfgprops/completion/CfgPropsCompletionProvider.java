@@ -17,6 +17,9 @@ package com.github.alexfalappa.nbspringboot.cfgprops.completion;
 
 import java.util.logging.Logger;
 
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 import javax.swing.text.JTextComponent;
 
 import org.netbeans.api.editor.mimelookup.MimeRegistration;
@@ -47,9 +50,6 @@ public class CfgPropsCompletionProvider implements CompletionProvider {
 
     @Override
     public CompletionTask createTask(int queryType, JTextComponent jtc) {
-        if (queryType == CompletionProvider.COMPLETION_ALL_QUERY_TYPE) {
-            return null;
-        }
         Project prj = Utils.getActiveProject();
         if (prj == null) {
             return null;
@@ -61,7 +61,10 @@ public class CfgPropsCompletionProvider implements CompletionProvider {
         }
         switch (queryType) {
             case CompletionProvider.COMPLETION_QUERY_TYPE:
-                return new AsyncCompletionTask(new CfgPropsCompletionQuery(sbs, prj), jtc);
+                return new AsyncCompletionTask(new CfgPropsCompletionQuery(sbs, prj, false), jtc);
+            case CompletionProvider.COMPLETION_ALL_QUERY_TYPE:
+                // invoked again after a truncated result, list all matching property names and run all the sources
+                return new AsyncCompletionTask(new CfgPropsCompletionQuery(sbs, prj, true), jtc);
             case CompletionProvider.DOCUMENTATION_QUERY_TYPE:
                 return new AsyncCompletionTask(new CfgPropsDocAndTooltipQuery(sbs, false), jtc);
             case CompletionProvider.TOOLTIP_QUERY_TYPE:
@@ -72,7 +75,26 @@ public class CfgPropsCompletionProvider implements CompletionProvider {
 
     @Override
     public int getAutoQueryTypes(JTextComponent jtc, String string) {
+        // pop up the next level segments when a dot is typed within a property name
+        if (string != null && string.endsWith(".") && isInPropertyName(jtc)) {
+            return CompletionProvider.COMPLETION_QUERY_TYPE;
+        }
         return 0;
     }
 
+    // tells if the line text before the caret is a property name only, i.e. not a comment nor a value
+    private static boolean isInPropertyName(JTextComponent jtc) {
+        final Document doc = jtc.getDocument();
+        final int caretOffset = jtc.getCaretPosition();
+        final Element lineElement = doc.getDefaultRootElement().getElement(doc.getDefaultRootElement().getElementIndex(
+                caretOffset));
+        try {
+            final String line = doc.getText(lineElement.getStartOffset(), caretOffset - lineElement.getStartOffset()).trim();
+            return !line.isEmpty() && line.indexOf('=') < 0 && line.indexOf(':') < 0 && line.charAt(0) != '#'
+                    && line.charAt(0) != '!' && line.indexOf(' ') < 0;
+        } catch (BadLocationException ex) {
+            return false;
+        }
+    }
+
 }
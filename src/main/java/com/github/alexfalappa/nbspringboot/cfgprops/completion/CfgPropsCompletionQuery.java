@@ -15,7 +15,10 @@
  */
 package com.github.alexfalappa.nbspringboot.cfgprops.completion;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.logging.Logger;
@@ -28,8 +31,8 @@ import javax.swing.text.Document;
 import javax.swing.text.Element;
 import javax.swing.text.StyledDocument;
 
-import org.netbeans.api.java.classpath.ClassPath;
 import org.netbeans.api.project.Project;
+import org.netbeans.spi.editor.completion.CompletionItem;
 import org.netbeans.spi.editor.completion.CompletionResultSet;
 import org.netbeans.spi.editor.completion.support.AsyncCompletionQuery;
 import org.openide.filesystems.FileObject;
@@ -44,8 +47,12 @@ import com.github.alexfalappa.nbspringboot.PrefConstants;
 import com.github.alexfalappa.nbspringboot.Utils;
 import com.github.alexfalappa.nbspringboot.cfgprops.completion.items.CfgPropCompletionItem;
 import com.github.alexfalappa.nbspringboot.cfgprops.completion.items.KeyCompletionItem;
+import com.github.alexfalappa.nbspringboot.cfgprops.completion.items.SegmentCompletionItem;
 import com.github.alexfalappa.nbspringboot.cfgprops.completion.items.ValueCompletionItem;
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyNameIndex;
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyType;
 import com.github.alexfalappa.nbspringboot.projects.service.api.SpringBootService;
+import com.github.alexfalappa.nbspringboot.projects.service.impl.EnumValues;
 import com.github.alexfalappa.nbspringboot.projects.service.impl.HintSupport;
 
 import static com.github.alexfalappa.nbspringboot.PrefConstants.PREF_DEPR_ERROR_SHOW;
@@ -55,6 +62,11 @@ import static java.util.logging.Level.FINER;
 
 /**
  * Completion query for normal (i.e. Ctrl+Space) completion used in {@link CfgPropsCompletionProvider}.
+ * <p>
+ * Results are produced in stages: first the cheap in-memory sources (metadata hints, booleans, enums, charsets and the like)
+ * added to the result set in batches, then the expensive ones (hint providers searching the class index, filesystem listings).
+ * Each expensive source runs only if the query was not cancelled meanwhile, e.g. by further typing, and the time budget is not
+ * exhausted: in that case the result is flagged as having additional items, invoking completion again runs them all.
  *
  * @author Alessandro Falappa
  */
@@ -62,14 +74,20 @@ public class CfgPropsCompletionQuery extends AsyncCompletionQuery {
 
     private static final Logger logger = Logger.getLogger(CfgPropsCompletionQuery.class.getName());
     private static final Pattern PATTERN_PROP_NAME = Pattern.compile("[^=\\s]+");
-    private static final Pattern PATTERN_MAPKEY_DATATYPE = Pattern.compile("java.util.Map<([^,]+),.*>");
-    private static final Pattern PATTERN_MAPVALUE_DATATYPE = Pattern.compile("java.util.Map<.*,(.*)>");
     private static final Pattern PATTERN_NUMBER_UNIT = Pattern.compile("\\d+(\\w*)");
     private static final Map<String, String> DURATION_SUFFIXES = new HashMap<>();
     private static final Map<String, String> DATASIZE_SUFFIXES = new HashMap<>();
+    // property names offered at once, best matches first, the others on completion invoked again
+    private static final int MAX_NAME_ITEMS = 100;
+    // items added to the result set at once by cheap sources
+    private static final int BATCH_SIZE = 64;
+    // time from query start after which expensive sources are skipped
+    private static final long EXPENSIVE_BUDGET_MSECS = 250;
     private final SpringBootService sbs;
     private final Project proj;
     private final FileObject resourcesFolder;
+    private final boolean allItems;
+    private long queryStart;
 
     static {
         DURATION_SUFFIXES.put("ns", "nanoseconds");
@@ -86,15 +104,24 @@ public class CfgPropsCompletionQuery extends AsyncCompletionQuery {
         DATASIZE_SUFFIXES.put("TB", "terabytes");
     }
 
-    public CfgPropsCompletionQuery(SpringBootService sbs, Project proj) {
+    /**
+     * Creates a query.
+     *
+     * @param sbs the project service
+     * @param proj the project
+     * @param allItems if true lists all the matching property names and runs all the expensive sources, regardless of time
+     */
+    public CfgPropsCompletionQuery(SpringBootService sbs, Project proj, boolean allItems) {
         this.sbs = Objects.requireNonNull(sbs);
         this.proj = proj;
         this.resourcesFolder = Utils.resourcesFolderForProj(proj);
+        this.allItems = allItems;
     }
 
     @Override
     protected void query(CompletionResultSet completionResultSet, Document document, int caretOffset) {
         logger.finer("Starting completion");
+        queryStart = System.currentTimeMillis();
         final StyledDocument styDoc = (StyledDocument) document;
         Element lineElement = styDoc.getParagraphElement(caretOffset);
         int lineStartOffset = lineElement.getStartOffset();
@@ -122,7 +149,7 @@ public class CfgPropsCompletionQuery extends AsyncCompletionQuery {
                     completePropValue(completionResultSet, propPrefix, "", lineStartOffset + equalSignOffset + 1, caretOffset);
                 } else {
                     // property completion
-                    completePropName(completionResultSet, propPrefix, lineStartOffset + propPrefixOffset, caretOffset);
+                    completePropName(completionResultSet, document, propPrefix, lineStartOffset + propPrefixOffset, caretOffset);
                 }
             }
         } catch (BadLocationException ex) {
@@ -132,74 +159,114 @@ public class CfgPropsCompletionQuery extends AsyncCompletionQuery {
     }
 
     // Create a completion result list of config properties based on a filter string and document offsets.
-    private void completePropName(CompletionResultSet completionResultSet, String filter, int startOffset, int caretOffset) {
+    private void completePropName(CompletionResultSet completionResultSet, Document document, String filter, int startOffset,
+            int caretOffset) {
         final Preferences prefs = NbPreferences.forModule(PrefConstants.class);
         final boolean bDeprLast = prefs.getBoolean(PREF_DEPR_SORT_LAST, true);
         final boolean bErrorShow = prefs.getBoolean(PREF_DEPR_ERROR_SHOW, true);
         long mark = System.currentTimeMillis();
         // check if completing a property map key
-        if (filter != null) {
-            ClassPath cpExec = Utils.execClasspathForProj(proj);
-            for (String mapProp : sbs.getMapPropertyNames()) {
-                if (filter.length() > mapProp.length() && filter.contains(mapProp)) {
-                    String key = filter.substring(mapProp.length() + 1);
-                    logger.log(FINER, "Completing key for map property {0} from: ''{1}''", new Object[]{mapProp, key});
-                    final ConfigurationMetadataProperty propMetadata = sbs.getPropertyMetadata(mapProp);
-                    // if key data type is an enum complete with enum values
-                    final String keyDataType = extractMapKeyType(propMetadata);
-                    if (!keyDataType.contains("<")) {
-                        Utils.completeEnum(cpExec, keyDataType, key, hint -> {
-                            completionResultSet.addItem(new KeyCompletionItem(hint, startOffset + mapProp.length() + 1,
-                                    caretOffset));
-                        });
-                    }
-                    // check if key data type is boolean
-                    if (keyDataType.equals("java.lang.Boolean")) {
-                        Utils.completeBoolean(key, hint -> {
-                            completionResultSet.addItem(new KeyCompletionItem(hint, startOffset + mapProp.length() + 1,
-                                    caretOffset));
-                        });
-                    }
-                    // check if key data type is Charset
-                    if (keyDataType.equals("java.nio.charset.Charset")) {
-                        Utils.completeCharset(key, hint -> {
-                            completionResultSet.addItem(new KeyCompletionItem(hint, startOffset + mapProp.length() + 1,
-                                    caretOffset));
-                        });
-                    }
-                    // add metadata defined key hints to completion list
-                    final Hints hints = propMetadata.getHints();
-                    if (!hints.getKeyHints().isEmpty()) {
-                        String keyLowcase = key.toLowerCase();
-                        for (ValueHint keyHint : hints.getKeyHints()) {
-                            if (keyHint.getValue().toString().toLowerCase().contains(keyLowcase)) {
-                                completionResultSet.addItem(new KeyCompletionItem(keyHint, startOffset + mapProp.length() + 1,
-                                        caretOffset));
-                            }
-                        }
+        final ConfigurationMetadataProperty propMetadata = filter != null ? sbs.findMapPropertyMetadata(filter) : null;
+        final int keyStart = propMetadata != null ? mapKeyStart(filter, propMetadata.getId()) : -1;
+        if (keyStart > 0) {
+            final String mapProp = propMetadata.getId();
+            final String key = filter.substring(keyStart);
+            final int keyOffset = startOffset + keyStart;
+            logger.log(FINER, "Completing key for map property {0} from: ''{1}''", new Object[]{mapProp, key});
+            // if key data type is an enum complete with enum values
+            final PropertyType keyType = PropertyType.of(propMetadata.getType()).getKeyType();
+            final ItemBatch batch = new ItemBatch(completionResultSet);
+            if (keyType.isEnumCandidate()) {
+                Utils.completeEnum(sbs.getManagedClassLoader(), keyType.getName(), key, hint -> {
+                    batch.add(new KeyCompletionItem(hint, keyOffset, caretOffset));
+                });
+            }
+            // check if key data type is boolean
+            if (keyType.isBoolean()) {
+                Utils.completeBoolean(key, hint -> {
+                    batch.add(new KeyCompletionItem(hint, keyOffset, caretOffset));
+                });
+            }
+            // check if key data type is Charset
+            if (keyType.isCharset()) {
+                Utils.completeCharset(key, hint -> {
+                    batch.add(new KeyCompletionItem(hint, keyOffset, caretOffset));
+                });
+            }
+            // add metadata defined key hints to completion list
+            final Hints hints = propMetadata.getHints();
+            if (!hints.getKeyHints().isEmpty()) {
+                String keyLowcase = key.toLowerCase(Locale.ROOT);
+                for (ValueHint keyHint : hints.getKeyHints()) {
+                    if (keyHint.getValue().toString().toLowerCase(Locale.ROOT).contains(keyLowcase)) {
+                        batch.add(new KeyCompletionItem(keyHint, keyOffset, caretOffset));
                     }
-                    // invoke key providers
-                    if (!hints.getKeyProviders().isEmpty()) {
-                        logger.log(FINER, "Key providers for {0}:", mapProp);
-                        for (ValueProvider vp : hints.getKeyProviders()) {
-                            logger.log(FINER, "  {0} - params: {1}", new Object[]{vp.getName(), vp.getParameters()});
-                            sbs.getHintProvider(vp.getName()).provide(vp.getParameters(), propMetadata, key, true,
-                                    completionResultSet, startOffset + mapProp.length() + 1, caretOffset);
-                        }
+                }
+            }
+            batch.flush();
+            // invoke key providers
+            if (!hints.getKeyProviders().isEmpty()) {
+                logger.log(FINER, "Key providers for {0}:", mapProp);
+                for (ValueProvider vp : hints.getKeyProviders()) {
+                    if (!canRunExpensive(completionResultSet, vp.getName())) {
+                        break;
                     }
+                    logger.log(FINER, "  {0} - params: {1}", new Object[]{vp.getName(), vp.getParameters()});
+                    sbs.getHintProvider(vp.getName()).provide(vp.getParameters(), propMetadata, key, true,
+                            completionResultSet, keyOffset, caretOffset);
                 }
             }
         }
-        for (ConfigurationMetadataProperty propMeta : sbs.queryPropertyMetadata(filter)) {
-            if (Utils.isErrorDeprecated(propMeta)) {
-                // show error level deprecated props based on pref
-                if (bErrorShow) {
-                    completionResultSet.addItem(new CfgPropCompletionItem(propMeta, startOffset, caretOffset, bDeprLast));
+        // after a dot list the next level segments starting with the partial last segment, reading a single node of the names
+        // trie reached walking the canonical path, so that relaxed spellings are resolved
+        final int lastDot = keyStart <= 0 && filter != null ? filter.lastIndexOf('.') : -1;
+        if (lastDot > 0) {
+            final String path = Utils.canonicalPropertyName(filter.substring(0, lastDot));
+            final String partial = Utils.canonicalPropertyName(filter.substring(lastDot + 1));
+            final List<PropertyNameIndex.Segment> segments = sbs.getPropertySegments(path);
+            final List<CompletionItem> items = new ArrayList<>();
+            int rank = 0;
+            for (PropertyNameIndex.Segment segment : segments) {
+                if (!Utils.canonicalPropertyName(segment.getName()).startsWith(partial)) {
+                    continue;
+                }
+                final ConfigurationMetadataProperty propMeta = segment.getProperty();
+                if (propMeta != null && (bErrorShow || !Utils.isErrorDeprecated(propMeta))) {
+                    items.add(new CfgPropCompletionItem(propMeta, startOffset, caretOffset, bDeprLast, rank));
+                }
+                if (segment.hasChildren()) {
+                    items.add(new SegmentCompletionItem(segment, startOffset, caretOffset, rank));
                 }
-            } else {
-                completionResultSet.addItem(new CfgPropCompletionItem(propMeta, startOffset, caretOffset, bDeprLast));
+                rank++;
             }
+            if (!items.isEmpty()) {
+                completionResultSet.addAllItems(items);
+                final long elapsed = System.currentTimeMillis() - mark;
+                logger.log(FINE, "Segment completion of ''{0}'' took: {1} msecs", new Object[]{filter, elapsed});
+                return;
+            }
+        }
+        // ranked matches, the rank becomes the item sort priority so the popup keeps the matcher order
+        final List<ConfigurationMetadataProperty> candidates = CfgPropsCompletionSession.forDocument(document, sbs)
+                .candidates(filter, startOffset);
+        if (isTaskCancelled()) {
+            return;
+        }
+        final int limit = allItems ? Integer.MAX_VALUE : MAX_NAME_ITEMS;
+        List<ConfigurationMetadataProperty> matches = PropertyNameIndex.rank(candidates, filter, allItems ? limit : limit + 1);
+        if (matches.size() > limit) {
+            matches = matches.subList(0, limit);
+            completionResultSet.setHasAdditionalItems(true);
         }
+        final List<CompletionItem> items = new ArrayList<>(matches.size());
+        int rank = 0;
+        for (ConfigurationMetadataProperty propMeta : matches) {
+            // show error level deprecated props based on pref
+            if (bErrorShow || !Utils.isErrorDeprecated(propMeta)) {
+                items.add(new CfgPropCompletionItem(propMeta, startOffset, caretOffset, bDeprLast, rank++));
+            }
+        }
+        completionResultSet.addAllItems(items);
         final long elapsed = System.currentTimeMillis() - mark;
         logger.log(FINE, "Name completion of ''{0}'' took: {1} msecs", new Object[]{filter, elapsed});
     }
@@ -208,84 +275,81 @@ public class CfgPropsCompletionQuery extends AsyncCompletionQuery {
     public void completePropValue(CompletionResultSet completionResultSet, String propName, String filter, int startOffset,
             int caretOffset) {
         long mark = System.currentTimeMillis();
-        String filterLowcase = filter.toLowerCase();
+        // locale independent, so that e.g. an uppercase I still matches in a Turkish locale
+        String filterLowcase = filter.toLowerCase(Locale.ROOT);
         logger.log(FINER, "Completing property value from: ''{0}''", filter);
         ConfigurationMetadataProperty propMeta = sbs.getPropertyMetadata(propName);
         if (propMeta != null) {
-            final String propType = propMeta.getType();
-            final String mapValueType = extractMapValueType(propMeta);
+            final PropertyType propType = PropertyType.of(propMeta.getType());
+            // type of single values: the data type itself, map value type or collection/array element type
+            final PropertyType valueType = propType.getElementType();
             // if data type is collection or array adjust filter and startOffset to part after last comma
-            if (propType.contains("List<") || propType.contains("Set<") || propType.contains("[]")) {
+            if (propType.isSequence()) {
                 int idx = filter.lastIndexOf(',');
                 if (idx > 0) {
                     startOffset = startOffset + idx + 1;
                     filter = filter.substring(idx + 1);
-                    filterLowcase = filter.toLowerCase();
+                    filterLowcase = filter.toLowerCase(Locale.ROOT);
                 }
             }
-            // check if data type or map value type is boolean
-            if (propType.equals("java.lang.Boolean") || mapValueType.equals("java.lang.Boolean")) {
+            // cheap sources first
+            final ItemBatch batch = new ItemBatch(completionResultSet);
+            // check if value type is boolean
+            if (valueType.isBoolean()) {
                 if ("true".contains(filterLowcase)) {
-                    completionResultSet.addItem(new ValueCompletionItem(Utils.createHint("true"), startOffset, caretOffset));
+                    batch.add(new ValueCompletionItem(Utils.createHint("true"), startOffset, caretOffset));
                 }
                 if ("false".contains(filterLowcase)) {
-                    completionResultSet.addItem(new ValueCompletionItem(Utils.createHint("false"), startOffset, caretOffset));
+                    batch.add(new ValueCompletionItem(Utils.createHint("false"), startOffset, caretOffset));
                 }
             }
-            // check if data type or map value type is CharSet
-            if (propType.equals("java.nio.charset.Charset") || mapValueType.equals("java.nio.charset.Charset")) {
+            // check if value type is CharSet
+            if (valueType.isCharset()) {
                 for (String chrsName : HintSupport.getAllCharsets()) {
-                    if (chrsName.toLowerCase().contains(filterLowcase)) {
-                        completionResultSet.addItem(new ValueCompletionItem(Utils.createHint(chrsName), startOffset, caretOffset));
+                    if (chrsName.toLowerCase(Locale.ROOT).contains(filterLowcase)) {
+                        batch.add(new ValueCompletionItem(Utils.createHint(chrsName), startOffset, caretOffset));
                     }
                 }
             }
-            // check if data type or map value type is Locale
-            if (propType.equals("java.util.Locale") || mapValueType.equals("java.util.Locale")) {
+            // check if value type is Locale
+            if (valueType.isLocale()) {
                 for (String lclName : HintSupport.getAllLocales()) {
-                    if (lclName.toLowerCase().contains(filterLowcase)) {
-                        completionResultSet.addItem(new ValueCompletionItem(Utils.createHint(lclName), startOffset, caretOffset));
+                    if (lclName.toLowerCase(Locale.ROOT).contains(filterLowcase)) {
+                        batch.add(new ValueCompletionItem(Utils.createHint(lclName), startOffset, caretOffset));
                     }
                 }
             }
-            // check if data type or map value type is MimeType
-            if (propType.equals("org.springframework.util.MimeType") || mapValueType.equals("org.springframework.util.MimeType")) {
+            // check if value type is MimeType
+            if (valueType.isMimeType()) {
                 for (String mime : HintSupport.MIMETYPES) {
-                    if (mime.toLowerCase().contains(filterLowcase)) {
-                        completionResultSet.addItem(new ValueCompletionItem(Utils.createHint(mime), startOffset, caretOffset));
+                    if (mime.toLowerCase(Locale.ROOT).contains(filterLowcase)) {
+                        batch.add(new ValueCompletionItem(Utils.createHint(mime), startOffset, caretOffset));
                     }
                 }
             }
-            // check if data type or map value type is a Spring Resource
-            if (propType.equals("org.springframework.core.io.Resource")
-                    || mapValueType.equals("org.springframework.core.io.Resource")) {
-                Utils.completeSpringResource(resourcesFolder, filter, completionResultSet, startOffset, caretOffset);
-            }
-            // check if data type is an enum
-            completeValueEnum(propType, filterLowcase, completionResultSet, startOffset, caretOffset);
-            // check if map value data type is an enum (not for collections)
-            if (!mapValueType.contains("<")) {
-                completeValueEnum(mapValueType, filterLowcase, completionResultSet, startOffset, caretOffset);
+            // check if value type is an enum
+            if (valueType.isEnumCandidate()) {
+                completeValueEnum(valueType.getName(), filterLowcase, batch, startOffset, caretOffset);
             }
             // check if filter is a number with unit
             Matcher m = PATTERN_NUMBER_UNIT.matcher(filter);
             if (m.matches()) {
-                String unitPart = m.group(1).toLowerCase();
+                String unitPart = m.group(1).toLowerCase(Locale.ROOT);
                 final int newStartOffset = startOffset + filter.length() - unitPart.length();
                 // if data type is java.time.Duration offer simple form suffixes
-                if (propType.equals("java.time.Duration")) {
+                if (propType.isDuration()) {
                     for (Map.Entry<String, String> entry : DURATION_SUFFIXES.entrySet()) {
-                        if (entry.getKey().toLowerCase().startsWith(unitPart)) {
-                            completionResultSet.addItem(new ValueCompletionItem(
+                        if (entry.getKey().toLowerCase(Locale.ROOT).startsWith(unitPart)) {
+                            batch.add(new ValueCompletionItem(
                                     Utils.createHint(entry.getKey(), entry.getValue()), newStartOffset, caretOffset));
                         }
                     }
                 }
                 // if data type is org.springframework.util.unit.DataSize offer size suffixes
-                if (propType.equals("org.springframework.util.unit.DataSize")) {
+                if (propType.isDataSize()) {
                     for (Map.Entry<String, String> entry : DATASIZE_SUFFIXES.entrySet()) {
-                        if (entry.getKey().toLowerCase().startsWith(unitPart)) {
-                            completionResultSet.addItem(new ValueCompletionItem(
+                        if (entry.getKey().toLowerCase(Locale.ROOT).startsWith(unitPart)) {
+                            batch.add(new ValueCompletionItem(
                                     Utils.createHint(entry.getKey(), entry.getValue()), newStartOffset, caretOffset));
                         }
                     }
@@ -294,14 +358,22 @@ public class CfgPropsCompletionQuery extends AsyncCompletionQuery {
             // add metadata defined value hints to completion list
             final Hints hints = propMeta.getHints();
             for (ValueHint valueHint : hints.getValueHints()) {
-                if (valueHint.getValue().toString().toLowerCase().contains(filterLowcase)) {
-                    completionResultSet.addItem(new ValueCompletionItem(valueHint, startOffset, caretOffset));
+                if (valueHint.getValue().toString().toLowerCase(Locale.ROOT).contains(filterLowcase)) {
+                    batch.add(new ValueCompletionItem(valueHint, startOffset, caretOffset));
                 }
             }
-            // invoke value providers
+            batch.flush();
+            // then expensive sources: filesystem listing
+            if (valueType.isResource() && canRunExpensive(completionResultSet, "resources")) {
+                Utils.completeSpringResource(resourcesFolder, filter, completionResultSet, startOffset, caretOffset);
+            }
+            // and value providers
             if (!hints.getValueProviders().isEmpty()) {
                 logger.log(FINER, "Value providers for {0}:", propName);
                 for (ValueProvider vp : hints.getValueProviders()) {
+                    if (!canRunExpensive(completionResultSet, vp.getName())) {
+                        break;
+                    }
                     logger.log(FINER, "  {0} - params: {1}", new Object[]{vp.getName(), vp.getParameters()});
                     sbs.getHintProvider(vp.getName()).provide(vp.getParameters(), propMeta, filter, false,
                             completionResultSet, startOffset, caretOffset);
@@ -312,43 +384,67 @@ public class CfgPropsCompletionQuery extends AsyncCompletionQuery {
         logger.log(FINE, "Value completion of ''{0}'' on ''{1}'' took: {2} msecs", new Object[]{filter, propName, elapsed});
     }
 
-    private void completeValueEnum(String dataType, String filter, CompletionResultSet completionResultSet, int startOffset,
-            int caretOffset) {
-        try {
-            ClassPath cpExec = Utils.execClasspathForProj(proj);
-            Object[] enumvals = cpExec.getClassLoader(true).loadClass(dataType).getEnumConstants();
-            if (enumvals != null) {
-                for (Object val : enumvals) {
-                    final String valName = val.toString().toLowerCase();
-                    if (valName.contains(filter)) {
-                        completionResultSet.addItem(new ValueCompletionItem(Utils.createEnumHint(valName), startOffset,
-                                caretOffset));
-                    }
-                }
-            }
-        } catch (ClassNotFoundException ex) {
-            // enum not available in project classpath, no completion possible
+    private void completeValueEnum(String dataType, String filter, ItemBatch batch, int startOffset, int caretOffset) {
+        EnumValues.of(sbs.getManagedClassLoader(), dataType).forEachMatching(filter, name -> {
+            batch.add(new ValueCompletionItem(Utils.createHint(name), startOffset, caretOffset));
+        });
+    }
+
+    // tells if an expensive source may run: not if the query was cancelled or, unless all items are requested, out of time
+    private boolean canRunExpensive(CompletionResultSet completionResultSet, String source) {
+        if (isTaskCancelled()) {
+            logger.log(FINER, "Completion cancelled, skipping {0}", source);
+            return false;
         }
+        if (!allItems && System.currentTimeMillis() - queryStart > EXPENSIVE_BUDGET_MSECS) {
+            logger.log(FINE, "Completion out of time budget, skipping {0}", source);
+            completionResultSet.setHasAdditionalItems(true);
+            return false;
+        }
+        return true;
     }
 
-    private String extractMapKeyType(ConfigurationMetadataProperty propMeta) {
-        Matcher matcher = PATTERN_MAPKEY_DATATYPE.matcher(propMeta.getType());
-        if (matcher.matches()) {
-            final String dataType = matcher.group(1);
-            logger.log(FINER, "Map key data type: {0}", dataType);
-            return dataType;
+    // index in filter of the map key, following as many dotted segments as the map property name has
+    private static int mapKeyStart(String filter, String mapProp) {
+        int idx = -1;
+        int segments = 1;
+        for (int i = 0; i < mapProp.length(); i++) {
+            if (mapProp.charAt(i) == '.') {
+                segments++;
+            }
         }
-        return "";
+        for (int i = 0; i < segments; i++) {
+            idx = filter.indexOf('.', idx + 1);
+            if (idx < 0) {
+                return -1;
+            }
+        }
+        return idx + 1;
     }
 
-    private String extractMapValueType(ConfigurationMetadataProperty propMeta) {
-        Matcher matcher = PATTERN_MAPVALUE_DATATYPE.matcher(propMeta.getType());
-        if (matcher.matches()) {
-            final String dataType = matcher.group(1);
-            logger.log(FINER, "Map value data type: {0}", dataType);
-            return dataType;
+    // collects items to add them to the result set in batches
+    private static final class ItemBatch {
+
+        private final CompletionResultSet completionResultSet;
+        private final List<CompletionItem> items = new ArrayList<>(BATCH_SIZE);
+
+        ItemBatch(CompletionResultSet completionResultSet) {
+            this.completionResultSet = completionResultSet;
+        }
+
+        void add(CompletionItem item) {
+            items.add(item);
+            if (items.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!items.isEmpty()) {
+                completionResultSet.addAllItems(items);
+                items.clear();
+            }
         }
-        return "";
     }
 
 }
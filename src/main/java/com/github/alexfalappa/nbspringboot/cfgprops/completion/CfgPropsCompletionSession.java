@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.cfgprops.completion;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.swing.event.ChangeListener;
+import javax.swing.text.Document;
+
+import org.openide.util.WeakListeners;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyNameIndex;
+import com.github.alexfalappa.nbspringboot.projects.service.api.SpringBootService;
+
+import static java.util.logging.Level.FINER;
+
+/**
+ * Property name completion state of a document, carried across the queries triggered while typing.
+ * <p>
+ * Holds the properties matching the last filter: when the next query starts at the same offset with a filter extending the
+ * last one, those candidates are narrowed instead of searching all the metadata again, so each typed character costs in
+ * proportion to the remaining candidates. Candidates are dropped when the service metadata changes or when completing elsewhere
+ * (e.g. after a caret jump).
+ *
+ * @author Alessandro Falappa
+ */
+final class CfgPropsCompletionSession {
+
+    private static final Logger logger = Logger.getLogger(CfgPropsCompletionSession.class.getName());
+    private final SpringBootService sbs;
+    private final ChangeListener metadataListener = e -> invalidate();
+    private List<ConfigurationMetadataProperty> candidates;
+    private String filter;
+    private int startOffset = -1;
+
+    private CfgPropsCompletionSession(SpringBootService sbs) {
+        this.sbs = sbs;
+    }
+
+    /**
+     * Gets the session of a document, creating it on first completion or when the project service changed.
+     *
+     * @param doc the document
+     * @param sbs the service of the project owning the document
+     * @return the document session
+     */
+    static CfgPropsCompletionSession forDocument(Document doc, SpringBootService sbs) {
+        synchronized (CfgPropsCompletionSession.class) {
+            final Object prop = doc.getProperty(CfgPropsCompletionSession.class);
+            if (prop instanceof CfgPropsCompletionSession && ((CfgPropsCompletionSession) prop).sbs == sbs) {
+                return (CfgPropsCompletionSession) prop;
+            }
+            final CfgPropsCompletionSession session = new CfgPropsCompletionSession(sbs);
+            sbs.addChangeListener(WeakListeners.change(session.metadataListener, sbs));
+            doc.putProperty(CfgPropsCompletionSession.class, session);
+            return session;
+        }
+    }
+
+    /**
+     * Gets the properties matching a filter.
+     *
+     * @param filter the property name filter, may be null
+     * @param startOffset document offset of the property name start
+     * @return an unmodifiable list of matching properties, in no particular ranking
+     */
+    synchronized List<ConfigurationMetadataProperty> candidates(String filter, int startOffset) {
+        final String newFilter = filter != null ? filter : "";
+        if (candidates != null && startOffset == this.startOffset && newFilter.startsWith(this.filter)) {
+            if (newFilter.length() > this.filter.length()) {
+                logger.log(FINER, "Narrowing {0} candidates to ''{1}''", new Object[]{candidates.size(), newFilter});
+                candidates = PropertyNameIndex.narrow(candidates, newFilter);
+            }
+        } else {
+            candidates = sbs.matchPropertyMetadata(newFilter);
+        }
+        this.filter = newFilter;
+        this.startOffset = startOffset;
+        return candidates;
+    }
+
+    private synchronized void invalidate() {
+        candidates = null;
+    }
+}
@@ -46,9 +46,7 @@ import org.springframework.boot.configurationmetadata.Hints;
 import com.github.alexfalappa.nbspringboot.PrefConstants;
 import com.github.alexfalappa.nbspringboot.Utils;
 import com.github.alexfalappa.nbspringboot.cfgprops.completion.doc.CfgPropCompletionDocumentation;
-
-import static com.github.alexfalappa.nbspringboot.Utils.shortenJavaType;
-import static com.github.alexfalappa.nbspringboot.Utils.simpleHtmlEscape;
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyType;
 
 /**
  * The implementation of {@code CompletionItem} for Spring Boot configuration property names.
@@ -67,21 +65,31 @@ public class CfgPropCompletionItem implements CompletionItem {
     private final int caretOffset;
     private final int propStartOffset;
     private boolean overwrite;
-    private final String type;
     private final boolean sortDeprLast;
+    private final int rank;
 
     public CfgPropCompletionItem(ConfigurationMetadataProperty configurationMeta, int propStartOffset, int caretOffset,
             boolean sortDeprLast) {
+        this(configurationMeta, propStartOffset, caretOffset, sortDeprLast, 0);
+    }
+
+    /**
+     * Creates an item ranked among the other property names.
+     *
+     * @param configurationMeta the property metadata
+     * @param propStartOffset offset of the property name start
+     * @param caretOffset offset of the caret
+     * @param sortDeprLast whether deprecated properties sort after all the others
+     * @param rank position of the property among the matches, lower sorts first
+     */
+    public CfgPropCompletionItem(ConfigurationMetadataProperty configurationMeta, int propStartOffset, int caretOffset,
+            boolean sortDeprLast, int rank) {
         this.overwrite = false;
         this.configurationMeta = configurationMeta;
-        if (configurationMeta.getType() != null) {
-            type = simpleHtmlEscape(shortenJavaType(configurationMeta.getType()));
-        } else {
-            type = null;
-        }
         this.propStartOffset = propStartOffset;
         this.caretOffset = caretOffset;
         this.sortDeprLast = sortDeprLast;
+        this.rank = rank;
     }
 
     public ConfigurationMetadataProperty getConfigurationMetadata() {
@@ -93,7 +101,8 @@ public class CfgPropCompletionItem implements CompletionItem {
     }
 
     public String getTextRight() {
-        return type;
+        // rendered type is shared by all the properties of the same type
+        return TypeDisplayCache.displayHtml(configurationMeta.getType());
     }
 
     @Override
@@ -126,15 +135,15 @@ public class CfgPropCompletionItem implements CompletionItem {
             // remove characters from the property name start offset
             doc.remove(propStartOffset, lenToRemove);
             // add some useful chars depending on data type and presence of successive equal signs
-            final String dataType = configurationMeta.getType();
-            final boolean isSequence = dataType.contains("List") || dataType.contains("Set") || dataType.contains("[]");
+            final PropertyType dataType = PropertyType.of(configurationMeta.getType());
+            final boolean isSequence = dataType.isSequence();
             final boolean preferArray = NbPreferences.forModule(PrefConstants.class)
                     .getBoolean(PrefConstants.PREF_ARRAY_NOTATION, false);
             final boolean needEqualSign = !(overwrite && equalSignIndex >= 0);
             StringBuilder sb = new StringBuilder(getText());
             boolean continueCompletion = false;
             int goBack = 0;
-            if (dataType.contains("Map")) {
+            if (dataType.isMap()) {
                 sb.append(".");
                 continueCompletion = canCompleteKey();
             } else if (isSequence) {
@@ -216,7 +225,7 @@ public class CfgPropCompletionItem implements CompletionItem {
 
     @Override
     public int getSortPriority() {
-        return (configurationMeta.isDeprecated() && sortDeprLast) ? 1 : 0;
+        return (configurationMeta.isDeprecated() && sortDeprLast) ? Integer.MAX_VALUE / 2 + rank : rank;
     }
 
     @Override
@@ -258,32 +267,15 @@ public class CfgPropCompletionItem implements CompletionItem {
     }
 
     private boolean isCompletableType() {
-        final String dataType = configurationMeta.getType();
-        switch (dataType) {
-            case "java.lang.Boolean":
-            case "java.nio.charset.Charset":
-            case "java.util.Locale":
-            case "org.springframework.core.io.Resource":
-            case "org.springframework.util.MimeType":
-            case "java.util.List<java.lang.Boolean>":
-            case "java.util.Set<java.lang.Boolean>":
-            case "java.util.List<org.springframework.core.io.Resource>":
-            case "java.util.Set<org.springframework.core.io.Resource>":
-            case "java.util.List<java.nio.charset.Charset>":
-            case "java.util.Set<java.nio.charset.Charset>":
-            case "java.util.List<java.util.Locale>":
-            case "java.util.Set<java.util.Locale>":
-                return true;
-            default:
-// TODO try to interpret the targetType as an enum
-//                try {
-//                    Object[] enumvals = cp.getClassLoader(true).loadClass(dataType).getEnumConstants();
-//                    return enumvals != null;
-//                } catch (ClassNotFoundException ex) {
-//                    return false;
-//                }
+        final PropertyType dataType = PropertyType.of(configurationMeta.getType());
+        if (dataType.isMap()) {
+            return false;
         }
-        return false;
+        // single values or collection elements
+        final PropertyType valueType = dataType.getElementType();
+        // enum candidates are resolved against the project classpath by the value completion query
+        return valueType.isBoolean() || valueType.isCharset() || valueType.isLocale() || valueType.isResource()
+                || valueType.isMimeType() || valueType.isEnumCandidate();
     }
 
 }
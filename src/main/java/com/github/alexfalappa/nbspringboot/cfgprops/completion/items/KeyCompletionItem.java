@@ -60,6 +60,7 @@ public class KeyCompletionItem implements CompletionItem {
     private final int caretOffset;
     private final int dotOffset;
     private boolean overwrite;
+    private String text;
 
     public KeyCompletionItem(ValueHint hint, int dotOffset, int caretOffset) {
         this.hint = hint;
@@ -72,7 +73,11 @@ public class KeyCompletionItem implements CompletionItem {
     }
 
     public String getText() {
-        return Utils.simpleHtmlEscape(hint.getValue().toString());
+        // escaped on first painting only, most items of long lists are never shown
+        if (text == null) {
+            text = Utils.simpleHtmlEscape(hint.getValue().toString());
+        }
+        return text;
     }
 
     public String getTextRight() {
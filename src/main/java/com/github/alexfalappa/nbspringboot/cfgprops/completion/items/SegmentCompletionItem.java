@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.cfgprops.completion.items;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.event.KeyEvent;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.ImageIcon;
+import javax.swing.UIManager;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.StyledDocument;
+
+import org.netbeans.api.editor.completion.Completion;
+import org.netbeans.spi.editor.completion.CompletionItem;
+import org.netbeans.spi.editor.completion.CompletionTask;
+import org.netbeans.spi.editor.completion.support.CompletionUtilities;
+import org.openide.util.Exceptions;
+import org.openide.util.ImageUtilities;
+
+import com.github.alexfalappa.nbspringboot.Utils;
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyNameIndex;
+
+/**
+ * The implementation of {@code CompletionItem} for a segment of Spring Boot configuration property names.
+ * <p>
+ * Shows the segment with the number of properties below it, accepting it inserts the segment path and a dot and continues
+ * completion with the following level.
+ *
+ * @author Alessandro Falappa
+ */
+public class SegmentCompletionItem implements CompletionItem {
+
+    private static final Logger logger = Logger.getLogger(SegmentCompletionItem.class.getName());
+    private static final ImageIcon fieldIcon = new ImageIcon(ImageUtilities.loadImage(
+            "com/github/alexfalappa/nbspringboot/cfgprops/completion/springboot-property.png"));
+    private final PropertyNameIndex.Segment segment;
+    private final int startOffset;
+    private final int caretOffset;
+    private final int rank;
+
+    /**
+     * Creates an item for a segment.
+     *
+     * @param segment the segment
+     * @param startOffset offset of the property name start
+     * @param caretOffset offset of the caret
+     * @param rank position of the segment among its siblings, lower sorts first
+     */
+    public SegmentCompletionItem(PropertyNameIndex.Segment segment, int startOffset, int caretOffset, int rank) {
+        this.segment = segment;
+        this.startOffset = startOffset;
+        this.caretOffset = caretOffset;
+        this.rank = rank;
+    }
+
+    public PropertyNameIndex.Segment getSegment() {
+        return segment;
+    }
+
+    public String getText() {
+        return Utils.simpleHtmlEscape(segment.getName()) + ".";
+    }
+
+    public String getTextRight() {
+        return segment.getCount() == 1 ? "1 property" : segment.getCount() + " properties";
+    }
+
+    @Override
+    public void defaultAction(JTextComponent jtc) {
+        logger.log(Level.FINER, "Accepted segment completion: {0}", segment.getName());
+        try {
+            StyledDocument doc = (StyledDocument) jtc.getDocument();
+            // replace the typed name with the segment path as named in metadata and a dot, then continue with the next level
+            doc.remove(startOffset, caretOffset - startOffset);
+            doc.insertString(startOffset, segment.getPath().concat("."), null);
+            Completion.get().showCompletion();
+        } catch (BadLocationException ex) {
+            Exceptions.printStackTrace(ex);
+        }
+    }
+
+    @Override
+    public void processKeyEvent(KeyEvent evt) {
+    }
+
+    @Override
+    public int getPreferredWidth(Graphics graphics, Font font) {
+        return CompletionUtilities.getPreferredWidth(getText(), getTextRight(), graphics, font);
+    }
+
+    @Override
+    public void render(Graphics g, Font defaultFont, Color defaultColor, Color backgroundColor, int width, int height,
+            boolean selected) {
+        CompletionUtilities.renderHtml(fieldIcon, "<b>" + getText() + "</b>", getTextRight(), g, defaultFont,
+                (selected ? UIManager.getColor("List.selectionForeground") : UIManager.getColor("List.foreground")), width,
+                height, selected);
+    }
+
+    @Override
+    public CompletionTask createDocumentationTask() {
+        return null;
+    }
+
+    @Override
+    public CompletionTask createToolTipTask() {
+        return null;
+    }
+
+    @Override
+    public boolean instantSubstitution(JTextComponent component) {
+        return false;
+    }
+
+    @Override
+    public int getSortPriority() {
+        return rank;
+    }
+
+    @Override
+    public CharSequence getSortText() {
+        return segment.getName().concat(".");
+    }
+
+    @Override
+    public CharSequence getInsertPrefix() {
+        return segment.getPath();
+    }
+
+}
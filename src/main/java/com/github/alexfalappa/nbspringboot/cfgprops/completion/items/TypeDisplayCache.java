@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.cfgprops.completion.items;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.github.alexfalappa.nbspringboot.Utils;
+
+/**
+ * Data types as shown in completion items: without package names and escaped for HTML rendering.
+ * <p>
+ * Computed once per type string, on the first painting of an item of that type, and shared by all items.
+ *
+ * @author Alessandro Falappa
+ */
+final class TypeDisplayCache {
+
+    private static final ConcurrentMap<String, String> CACHE = new ConcurrentHashMap<>();
+
+    private TypeDisplayCache() {
+        // prevent instantiation
+    }
+
+    /**
+     * Gets the rendering of a data type.
+     *
+     * @param type the type as in metadata, may be null
+     * @return the short HTML escaped type, null if type is null
+     */
+    static String displayHtml(String type) {
+        if (type == null) {
+            return null;
+        }
+        return CACHE.computeIfAbsent(type, t -> Utils.simpleHtmlEscape(Utils.shortenJavaType(t)));
+    }
+}
@@ -60,6 +60,7 @@ public class ValueCompletionItem implements CompletionItem {
     private final int caretOffset;
     private final int dotOffset;
     private boolean overwrite;
+    private String text;
     private boolean continueCompletion;
 
     public ValueCompletionItem(ValueHint hint, int dotOffset, int caretOffset) {
@@ -78,7 +79,11 @@ public class ValueCompletionItem implements CompletionItem {
     }
 
     public String getText() {
-        return Utils.simpleHtmlEscape(hint.getValue().toString());
+        // escaped on first painting only, most items of long lists are never shown
+        if (text == null) {
+            text = Utils.simpleHtmlEscape(hint.getValue().toString());
+        }
+        return text;
     }
 
     public String getTextRight() {
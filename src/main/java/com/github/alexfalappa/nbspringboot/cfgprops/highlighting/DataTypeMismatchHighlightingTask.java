@@ -17,13 +17,10 @@ package com.github.alexfalappa.nbspringboot.cfgprops.highlighting;
 
 import java.util.List;
 import java.util.logging.Level;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 
-import org.netbeans.api.java.classpath.ClassPath;
 import org.netbeans.api.project.Project;
 import org.netbeans.editor.BaseDocument;
 import org.netbeans.modules.parsing.spi.SchedulerEvent;
@@ -39,9 +36,9 @@ import com.github.alexfalappa.nbspringboot.Utils;
 import com.github.alexfalappa.nbspringboot.cfgprops.ast.CfgElement;
 import com.github.alexfalappa.nbspringboot.cfgprops.ast.PairElement;
 import com.github.alexfalappa.nbspringboot.cfgprops.parser.CfgPropsParser;
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyType;
 import com.github.alexfalappa.nbspringboot.projects.service.api.SpringBootService;
 
-import static java.util.regex.Pattern.compile;
 import org.springframework.boot.convert.ApplicationConversionService;
 import org.springframework.core.convert.TypeDescriptor;
 
@@ -52,8 +49,6 @@ import org.springframework.core.convert.TypeDescriptor;
  */
 public class DataTypeMismatchHighlightingTask extends BaseHighlightingTask {
 
-    private final Pattern pOneGenTypeArg = compile("([^<>]+)<(.+)>");
-    private final Pattern pTwoGenTypeArgs = compile("([^<>]+)<(.+),(.+)>");
     private final ApplicationConversionService conversionService = new ApplicationConversionService();
 
     @Override
@@ -83,9 +78,8 @@ public class DataTypeMismatchHighlightingTask extends BaseHighlightingTask {
         final Project prj = Utils.getActiveProject();
         if (prj != null) {
             final SpringBootService sbs = prj.getLookup().lookup(SpringBootService.class);
-            final ClassPath cp = Utils.execClasspathForProj(prj);
-            if (sbs != null && cp != null) {
-                final ClassLoader cl = cp.getClassLoader(true);
+            final ClassLoader cl = sbs != null ? sbs.getManagedClassLoader() : null;
+            if (cl != null) {
                 for (PairElement pair : cfgResult.getCfgFile().getElements()) {
                     final CfgElement key = pair.getKey();
                     final CfgElement value = pair.getValue();
@@ -96,45 +90,26 @@ public class DataTypeMismatchHighlightingTask extends BaseHighlightingTask {
                         continue;
                     }
                     try {
-                        final String type = cfgMeta.getType();
+                        final PropertyType type = PropertyType.of(cfgMeta.getType());
                         // type is null for deprecated configuration properties
-                        if (type == null) {
+                        if (type.getName() == null) {
                             continue;
                         }
-                        if (type.contains("<")) {
-                            // maps
-                            Matcher mMap = pTwoGenTypeArgs.matcher(type);
-                            if (mMap.matches() && mMap.groupCount() == 3) {
-                                String keyType = mMap.group(2);
-                                check(keyType, pName.substring(pName.lastIndexOf('.') + 1), document, key, errors, cl,
-                                        severity);
-                                String valueType = mMap.group(3);
-                                check(valueType, pValue, document, value, errors, cl, severity);
-                            }
-                            // collections
-                            Matcher mColl = pOneGenTypeArg.matcher(type);
-                            if (mColl.matches() && mColl.groupCount() == 2) {
-                                String genericType = mColl.group(2);
-                                if (pValue.contains(",")) {
-                                    for (String val : pValue.split("\\s*,\\s*")) {
-                                        check(genericType, val, document, value, errors, cl, severity);
-                                    }
-                                } else {
-                                    check(genericType, pValue, document, value, errors, cl, severity);
-                                }
-                            }
-                        } else {
-                            if (pValue.contains(",") && type.endsWith("[]")) {
+                        if (type.isMap()) {
+                            check(type.getKeyType().getName(), pName.substring(pName.lastIndexOf('.') + 1), document, key, errors,
+                                    cl, severity);
+                            check(type.getElementType().getName(), pValue, document, value, errors, cl, severity);
+                        } else if (type.isSequence()) {
+                            final String elementType = type.getElementType().getName();
+                            if (pValue.contains(",")) {
                                 for (String val : pValue.split("\\s*,\\s*")) {
-                                    check(type.substring(0, type.length() - 2), val, document, value, errors, cl, severity);
+                                    check(elementType, val, document, value, errors, cl, severity);
                                 }
                             } else {
-                                if (type.endsWith("[]")) {
-                                    check(type.substring(0, type.length() - 2), pValue, document, value, errors, cl, severity);
-                                } else {
-                                    check(type, pValue, document, value, errors, cl, severity);
-                                }
+                                check(elementType, pValue, document, value, errors, cl, severity);
                             }
+                        } else {
+                            check(type.getName(), pValue, document, value, errors, cl, severity);
                         }
                     } catch (BadLocationException ex) {
                         Exceptions.printStackTrace(ex);
@@ -74,7 +74,8 @@ public class UnknownPropsHighlightingTask extends BaseHighlightingTask {
         final Project prj = Utils.getActiveProject();
         if (prj != null) {
             final SpringBootService sbs = prj.getLookup().lookup(SpringBootService.class);
-            if (sbs != null) {
+            // until metadata is built every property would look unknown, the parser reschedules highlighting when published
+            if (sbs != null && sbs.isMetadataReady()) {
                 for (PairElement pair : cfgResult.getCfgFile().getElements()) {
                     final CfgElement key = pair.getKey();
                     final CfgElement value = pair.getValue();
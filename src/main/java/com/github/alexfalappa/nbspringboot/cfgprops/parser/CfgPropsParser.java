@@ -23,6 +23,7 @@ import java.util.logging.Logger;
 
 import javax.swing.event.ChangeListener;
 
+import org.netbeans.api.project.Project;
 import org.netbeans.modules.csl.api.Error;
 import org.netbeans.modules.csl.spi.ParserResult;
 import org.netbeans.modules.parsing.api.Snapshot;
@@ -30,16 +31,23 @@ import org.netbeans.modules.parsing.api.Task;
 import org.netbeans.modules.parsing.spi.ParseException;
 import org.netbeans.modules.parsing.spi.Parser;
 import org.netbeans.modules.parsing.spi.SourceModificationEvent;
+import org.openide.util.ChangeSupport;
+import org.openide.util.WeakListeners;
 import org.parboiled.Parboiled;
 import org.parboiled.parserunners.RecoveringParseRunner;
 import org.parboiled.support.ParsingResult;
 
+import com.github.alexfalappa.nbspringboot.Utils;
 import com.github.alexfalappa.nbspringboot.cfgprops.ast.CfgElement;
 import com.github.alexfalappa.nbspringboot.cfgprops.ast.CfgFile;
 import com.github.alexfalappa.nbspringboot.cfgprops.ast.PairElement;
+import com.github.alexfalappa.nbspringboot.projects.service.api.SpringBootService;
 
 /**
  * NetBeans Parsing and Lexing API parser for integrating the Parboiled parser.
+ * <p>
+ * Fires a change when the configuration metadata of the project changes, so that the parsing infrastructure reschedules
+ * highlighting tasks, e.g. once metadata is first built.
  *
  * @author Alessandro Falappa
  */
@@ -49,6 +57,11 @@ public class CfgPropsParser extends Parser {
     private final CfgPropsParboiled parboiled;
     private Snapshot snapshot;
     private ParsingResult parbResult;
+    private final ChangeSupport changeSupport = new ChangeSupport(this);
+    private final ChangeListener metadataListener = e -> changeSupport.fireChange();
+    // service whose changes are being listened to and the weak listener registered on it
+    private SpringBootService listenedService;
+    private ChangeListener listenedServiceListener;
 
     public CfgPropsParser() {
         parboiled = Parboiled.createParser(CfgPropsParboiled.class);
@@ -62,6 +75,7 @@ public class CfgPropsParser extends Parser {
         parboiled.reset();
         parbResult = runner.run(snapshot.getText().toString());
         logParsingResult();
+        listenToService();
     }
 
     @Override
@@ -71,10 +85,30 @@ public class CfgPropsParser extends Parser {
 
     @Override
     public void addChangeListener(ChangeListener cl) {
+        changeSupport.addChangeListener(cl);
     }
 
     @Override
     public void removeChangeListener(ChangeListener cl) {
+        changeSupport.removeChangeListener(cl);
+    }
+
+    // follow the service of the project highlighting tasks query, it may change with the active project
+    private synchronized void listenToService() {
+        final Project prj = Utils.getActiveProject();
+        final SpringBootService sbs = prj != null ? prj.getLookup().lookup(SpringBootService.class) : null;
+        if (sbs == listenedService) {
+            return;
+        }
+        if (listenedService != null) {
+            listenedService.removeChangeListener(listenedServiceListener);
+        }
+        listenedService = sbs;
+        listenedServiceListener = null;
+        if (sbs != null) {
+            listenedServiceListener = WeakListeners.change(metadataListener, sbs);
+            sbs.addChangeListener(listenedServiceListener);
+        }
     }
 
     private void logParsingResult() {
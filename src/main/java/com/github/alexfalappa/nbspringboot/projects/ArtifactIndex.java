@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.netbeans.modules.maven.api.NbMavenProject;
+
+/**
+ * Index of the dependencies of a Maven project model.
+ * <p>
+ * Versions of resolved (direct and transitive) artifacts are indexed by {@code groupId:artifactId} for exact lookups, artifact
+ * ids of the dependencies declared in the pom are kept for substring lookups, whose results are memoized.
+ * <p>
+ * One index is built per revision of the project model, i.e. per {@link MavenProject} instance as a new one is created on each
+ * pom change, and weakly cached per project so that it goes away with the project. Safe for concurrent use.
+ *
+ * @author Alessandro Falappa
+ */
+public final class ArtifactIndex {
+
+    // keyed by project, model instances are compared by identity as maven project equality is based on coordinates
+    private static final Map<Object, ArtifactIndex> CACHE = new WeakHashMap<>();
+    private final WeakReference<MavenProject> model;
+    // versions of resolved artifacts keyed by groupId:artifactId
+    private final Map<String, String> resolved;
+    private final List<String> declaredArtifactIds;
+    private final ConcurrentMap<String, Boolean> declaredContains = new ConcurrentHashMap<>();
+
+    private ArtifactIndex(MavenProject mavenProject) {
+        model = new WeakReference<>(mavenProject);
+        final Set<?> artifacts = mavenProject.getArtifacts();
+        resolved = new HashMap<>(artifacts.size() * 4 / 3 + 1);
+        for (Object o : artifacts) {
+            Artifact a = (Artifact) o;
+            resolved.putIfAbsent(key(a.getGroupId(), a.getArtifactId()), a.getVersion());
+        }
+        final List<?> dependencies = mavenProject.getDependencies();
+        declaredArtifactIds = new ArrayList<>(dependencies.size());
+        for (Object o : dependencies) {
+            declaredArtifactIds.add(((Dependency) o).getArtifactId());
+        }
+    }
+
+    /**
+     * Gets the index of the current model of a Maven project, building it on first request after each model change.
+     *
+     * @param nbMvn NB maven project
+     * @return the shared index
+     */
+    public static ArtifactIndex of(NbMavenProject nbMvn) {
+        return of(nbMvn, nbMvn.getMavenProject());
+    }
+
+    static ArtifactIndex of(Object owner, MavenProject mavenProject) {
+        synchronized (CACHE) {
+            ArtifactIndex ret = CACHE.get(owner);
+            if (ret == null || ret.model.get() != mavenProject) {
+                ret = new ArtifactIndex(mavenProject);
+                CACHE.put(owner, ret);
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Version of a resolved artifact.
+     *
+     * @param groupId the artifact group id
+     * @param artifactId the artifact id
+     * @return the version, empty if the artifact is not among the resolved ones
+     */
+    public Optional<String> versionOf(String groupId, String artifactId) {
+        return Optional.ofNullable(resolved.get(key(groupId, artifactId)));
+    }
+
+    /**
+     * Tells if any of the artifact ids of the dependencies declared in the pom contains the given string.
+     *
+     * @param search the string to look for
+     * @return true if a declared dependency artifactId contains the search string
+     */
+    public boolean declaredArtifactIdContains(String search) {
+        return declaredContains.computeIfAbsent(search, s -> {
+            for (String artifactId : declaredArtifactIds) {
+                if (artifactId.contains(s)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    private static String key(String groupId, String artifactId) {
+        return groupId + ':' + artifactId;
+    }
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+/**
+ * Immutable index of configuration properties names.
+ * <p>
+ * Properties are kept in an array sorted segment by segment (a dotted name precedes all the names it is a prefix of) and a
+ * radix trie of the dotted name segments maps each node to the contiguous range of properties below it. All the properties
+ * starting with a given prefix are thus found walking the trie along the prefix and returned as a view of the array, the
+ * segments following a dotted path are the children of a single node.
+ * <p>
+ * A trigram index over names serves substring queries, fuzzy queries scan the names or a previous, narrower result; ranking
+ * keeps the best matches in a bounded heap.
+ *
+ * @author Alessandro Falappa
+ */
+public final class PropertyNameIndex {
+
+    /**
+     * Orders names segment by segment, i.e. lexicographically with dots sorting before any other character.
+     */
+    public static final Comparator<String> SEGMENT_ORDER = (s1, s2) -> {
+        final int len = Math.min(s1.length(), s2.length());
+        for (int i = 0; i < len; i++) {
+            char c1 = s1.charAt(i);
+            char c2 = s2.charAt(i);
+            if (c1 != c2) {
+                return (c1 == '.' ? 0 : c1) - (c2 == '.' ? 0 : c2);
+            }
+        }
+        return s1.length() - s2.length();
+    };
+    public static final PropertyNameIndex EMPTY = new PropertyNameIndex(Collections.emptyList());
+    private final ConfigurationMetadataProperty[] props;
+    private final String[] names;
+    private final List<ConfigurationMetadataProperty> all;
+    private final Node root;
+    private final TrigramTable trigrams;
+
+    /**
+     * Builds the index over the given properties.
+     *
+     * @param properties the properties to index
+     */
+    public PropertyNameIndex(Collection<ConfigurationMetadataProperty> properties) {
+        props = properties.toArray(new ConfigurationMetadataProperty[properties.size()]);
+        Arrays.sort(props, (p1, p2) -> SEGMENT_ORDER.compare(p1.getId(), p2.getId()));
+        names = new String[props.length];
+        for (int i = 0; i < props.length; i++) {
+            names[i] = props[i].getId();
+        }
+        all = Collections.unmodifiableList(Arrays.asList(props));
+        root = buildNode("", 0, 0, names.length);
+        trigrams = new TrigramTable(names);
+    }
+
+    /**
+     * Number of indexed properties.
+     *
+     * @return the properties count
+     */
+    public int size() {
+        return props.length;
+    }
+
+    /**
+     * All indexed properties in segment order.
+     *
+     * @return an unmodifiable list of properties
+     */
+    public List<ConfigurationMetadataProperty> all() {
+        return all;
+    }
+
+    /**
+     * Finds properties whose name starts with the given prefix.
+     * <p>
+     * Costs a walk of the trie along the prefix, the returned list is a view over the index.
+     *
+     * @param prefix the name prefix, null or empty to get all properties
+     * @return an unmodifiable list of properties in segment order
+     */
+    public List<ConfigurationMetadataProperty> withPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return all;
+        }
+        Node node = root;
+        int segStart = 0;
+        int dotIdx;
+        // walk complete segments
+        while ((dotIdx = prefix.indexOf('.', segStart)) >= 0) {
+            node = node.child(prefix, segStart, dotIdx);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            segStart = dotIdx + 1;
+        }
+        // children whose segment starts with the last partial segment are contiguous
+        final String partial = prefix.substring(segStart);
+        int first = node.firstChildNotBefore(partial);
+        int last = first;
+        while (last < node.children.length && node.children[last].segment.startsWith(partial)) {
+            last++;
+        }
+        if (first == last) {
+            return Collections.emptyList();
+        }
+        return all.subList(node.children[first].from, node.children[last - 1].to);
+    }
+
+    /**
+     * Lists the segments following a dotted path, e.g. {@code datasource} and {@code jpa} after {@code spring}.
+     * <p>
+     * Costs a walk of the trie along the path and a read of the children of the reached node. Path segments not found as
+     * written are matched in relaxed form, ignoring case, dashes and underscores, so that {@code spring.dataSource} and
+     * {@code spring.datasource} list the same segments.
+     *
+     * @param path the dotted path without trailing dot, null or empty for the first segments
+     * @return an unmodifiable list of segments in segment order, empty if no property is below the path
+     */
+    public List<Segment> childSegments(String path) {
+        Node node = root;
+        int prefixLen = 0;
+        if (path != null && !path.isEmpty()) {
+            int segStart = 0;
+            int dotIdx;
+            do {
+                dotIdx = path.indexOf('.', segStart);
+                final int segEnd = dotIdx < 0 ? path.length() : dotIdx;
+                Node child = node.child(path, segStart, segEnd);
+                if (child == null) {
+                    child = node.relaxedChild(path, segStart, segEnd);
+                }
+                if (child == null) {
+                    return Collections.emptyList();
+                }
+                node = child;
+                // length of the path as named in metadata, which may differ from the given spelling
+                prefixLen += node.segment.length() + 1;
+                segStart = segEnd + 1;
+            } while (dotIdx >= 0);
+        }
+        final String parentPath = prefixLen > 0 ? names[node.from].substring(0, prefixLen - 1) : "";
+        final Segment[] ret = new Segment[node.children.length];
+        for (int i = 0; i < ret.length; i++) {
+            final Node child = node.children[i];
+            // the property named as the child path, if any, sorts first in its range
+            final boolean isProperty = names[child.from].length() == prefixLen + child.segment.length();
+            ret[i] = new Segment(parentPath, child.segment, child.to - child.from, isProperty ? props[child.from] : null,
+                    child.children.length > 0);
+        }
+        return Collections.unmodifiableList(Arrays.asList(ret));
+    }
+
+    /**
+     * Finds properties whose name contains the given string.
+     *
+     * @param filter the string to look for, null or empty to get all properties
+     * @return an unmodifiable list of properties in segment order
+     */
+    public List<ConfigurationMetadataProperty> containing(String filter) {
+        if (filter == null || filter.isEmpty()) {
+            return all;
+        }
+        List<ConfigurationMetadataProperty> ret = new ArrayList<>();
+        if (filter.length() < 3) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].contains(filter)) {
+                    ret.add(props[i]);
+                }
+            }
+        } else {
+            // verify candidates from the shortest posting list among the filter trigrams
+            int[] candidates = null;
+            for (int i = 0; i + 3 <= filter.length(); i++) {
+                int[] postings = trigrams.get(TrigramTable.key(filter, i));
+                if (postings == null) {
+                    return Collections.emptyList();
+                }
+                if (candidates == null || postings.length < candidates.length) {
+                    candidates = postings;
+                }
+            }
+            for (int idx : candidates) {
+                if (names[idx].contains(filter)) {
+                    ret.add(props[idx]);
+                }
+            }
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    /**
+     * Finds the properties fuzzily matching the given filter.
+     * <p>
+     * Matching is that of {@link PropertyNameMatcher}: substring, segment-initial and camel-hump matches are accepted. Appending
+     * characters to a filter can only drop matches, so while the filter grows the result can be narrowed with
+     * {@link #narrow(List, String)}.
+     *
+     * @param filter the filter, null or empty to get all properties
+     * @return an unmodifiable list of properties in segment order
+     */
+    public List<ConfigurationMetadataProperty> matching(String filter) {
+        return narrow(all, filter);
+    }
+
+    /**
+     * Finds the properties best matching the given filter, best first.
+     *
+     * @param filter the filter, null or empty to get the first properties in segment order
+     * @param limit maximum number of properties to return
+     * @return an unmodifiable list of at most limit properties
+     * @see #rank(List, String, int)
+     */
+    public List<ConfigurationMetadataProperty> bestMatches(String filter, int limit) {
+        return rank(all, filter, limit);
+    }
+
+    /**
+     * Keeps the candidate properties fuzzily matching the given filter.
+     *
+     * @param candidates the properties to filter
+     * @param filter the filter, null or empty to keep all candidates
+     * @return an unmodifiable list of properties in candidates order
+     */
+    public static List<ConfigurationMetadataProperty> narrow(List<ConfigurationMetadataProperty> candidates, String filter) {
+        if (filter == null || filter.isEmpty()) {
+            return Collections.unmodifiableList(candidates);
+        }
+        final PropertyNameMatcher matcher = new PropertyNameMatcher(filter);
+        final List<ConfigurationMetadataProperty> ret = new ArrayList<>();
+        for (ConfigurationMetadataProperty prop : candidates) {
+            if (matcher.score(prop.getId()) != PropertyNameMatcher.NO_MATCH) {
+                ret.add(prop);
+            }
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    /**
+     * Selects among candidate properties those best matching the given filter, best first.
+     * <p>
+     * Scores are those of {@link PropertyNameMatcher}, only the best matches are kept in a bounded heap while scanning the
+     * candidates. Ties are broken by shorter names first, then candidates order.
+     *
+     * @param candidates the properties to rank
+     * @param filter the filter, null or empty to get the first candidates
+     * @param limit maximum number of properties to return
+     * @return an unmodifiable list of at most limit properties
+     */
+    public static List<ConfigurationMetadataProperty> rank(List<ConfigurationMetadataProperty> candidates, String filter,
+            int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (filter == null || filter.isEmpty()) {
+            return Collections.unmodifiableList(limit >= candidates.size() ? candidates : candidates.subList(0, limit));
+        }
+        final PropertyNameMatcher matcher = new PropertyNameMatcher(filter);
+        // matches as {score, candidate index}, head is the worst of the best found so far
+        final Comparator<int[]> worstFirst = (m1, m2) -> {
+            if (m1[0] != m2[0]) {
+                return Integer.compare(m1[0], m2[0]);
+            }
+            final int lenDiff = candidates.get(m1[1]).getId().length() - candidates.get(m2[1]).getId().length();
+            return lenDiff != 0 ? -lenDiff : Integer.compare(m2[1], m1[1]);
+        };
+        final PriorityQueue<int[]> top = new PriorityQueue<>(Math.min(limit, 1024) + 1, worstFirst);
+        for (int i = 0; i < candidates.size(); i++) {
+            final int score = matcher.score(candidates.get(i).getId());
+            if (score == PropertyNameMatcher.NO_MATCH) {
+                continue;
+            }
+            final int[] match = {score, i};
+            if (top.size() < limit) {
+                top.add(match);
+            } else if (worstFirst.compare(match, top.peek()) > 0) {
+                top.poll();
+                top.add(match);
+            }
+        }
+        final ConfigurationMetadataProperty[] ret = new ConfigurationMetadataProperty[top.size()];
+        for (int i = ret.length - 1; i >= 0; i--) {
+            ret[i] = candidates.get(top.poll()[1]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(ret));
+    }
+
+    // build the trie node for names in range [from,to) sharing the segments before offset
+    private Node buildNode(String segment, int offset, int from, int to) {
+        List<Node> children = new ArrayList<>();
+        int i = from;
+        // a name ending at offset is the property of this node and sorts first
+        if (i < to && names[i].length() <= offset) {
+            i++;
+        }
+        while (i < to) {
+            final String name = names[i];
+            int dotIdx = name.indexOf('.', offset);
+            final int segEnd = dotIdx < 0 ? name.length() : dotIdx;
+            final String childSeg = name.substring(offset, segEnd);
+            int j = i + 1;
+            while (j < to && sameSegment(names[j], offset, childSeg)) {
+                j++;
+            }
+            children.add(buildNode(childSeg, segEnd + 1, i, j));
+            i = j;
+        }
+        return new Node(segment, from, to, children.toArray(new Node[children.size()]));
+    }
+
+    private static boolean sameSegment(String name, int offset, String segment) {
+        final int segEnd = offset + segment.length();
+        return name.startsWith(segment, offset) && (name.length() == segEnd || name.charAt(segEnd) == '.');
+    }
+
+    // tells if a segment equals a region of text ignoring case, dashes and underscores
+    private static boolean relaxedEquals(String segment, String text, int start, int end) {
+        int i = 0;
+        int j = start;
+        while (true) {
+            while (i < segment.length() && isSeparator(segment.charAt(i))) {
+                i++;
+            }
+            while (j < end && isSeparator(text.charAt(j))) {
+                j++;
+            }
+            if (i == segment.length() || j == end) {
+                return i == segment.length() && j == end;
+            }
+            if (Character.toLowerCase(segment.charAt(i++)) != Character.toLowerCase(text.charAt(j++))) {
+                return false;
+            }
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '-' || c == '_';
+    }
+
+    /**
+     * A dotted name segment with the properties below it.
+     */
+    public static final class Segment {
+
+        private final String parentPath;
+        private final String name;
+        private final int count;
+        private final ConfigurationMetadataProperty property;
+        private final boolean hasChildren;
+
+        Segment(String parentPath, String name, int count, ConfigurationMetadataProperty property, boolean hasChildren) {
+            this.parentPath = parentPath;
+            this.name = name;
+            this.count = count;
+            this.property = property;
+            this.hasChildren = hasChildren;
+        }
+
+        /**
+         * The segment text, without dots.
+         *
+         * @return the segment name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The dotted path of the segment, as named in metadata.
+         *
+         * @return the segment path
+         */
+        public String getPath() {
+            return parentPath.isEmpty() ? name : parentPath + '.' + name;
+        }
+
+        /**
+         * Number of properties in the subtree, including the one named as the segment path if any.
+         *
+         * @return the properties count
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * The property named exactly as the segment path.
+         *
+         * @return the property or null
+         */
+        public ConfigurationMetadataProperty getProperty() {
+            return property;
+        }
+
+        /**
+         * Tells if other segments follow this one.
+         *
+         * @return true if some properties are named with a longer path
+         */
+        public boolean hasChildren() {
+            return hasChildren;
+        }
+    }
+
+    // a trie node, covering the properties in range [from,to) of the sorted array
+    private static final class Node {
+
+        private final String segment;
+        private final int from;
+        private final int to;
+        private final Node[] children;
+
+        Node(String segment, int from, int to, Node[] children) {
+            this.segment = segment;
+            this.from = from;
+            this.to = to;
+            this.children = children;
+        }
+
+        // child with the segment equal to the given region of text or null
+        Node child(String text, int start, int end) {
+            int idx = firstChildNotBefore(text.substring(start, end));
+            if (idx < children.length && children[idx].segment.length() == end - start
+                    && text.startsWith(children[idx].segment, start)) {
+                return children[idx];
+            }
+            return null;
+        }
+
+        // first child whose segment equals the given region of text ignoring case, dashes and underscores, or null
+        Node relaxedChild(String text, int start, int end) {
+            for (Node node : children) {
+                if (relaxedEquals(node.segment, text, start, end)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        // index of first child whose segment is not lower than the given one
+        int firstChildNotBefore(String seg) {
+            int lo = 0;
+            int hi = children.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (children[mid].segment.compareTo(seg) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    // open addressing hash table from trigrams to ascending arrays of name indexes
+    private static final class TrigramTable {
+
+        private final long[] keys;
+        private final int[][] postings;
+        private final int mask;
+
+        TrigramTable(String[] names) {
+            // first pass: count distinct trigram occurrences per name
+            Map<Long, int[]> counts = new HashMap<>();
+            for (int n = 0; n < names.length; n++) {
+                final String name = names[n];
+                for (int i = 0; i + 3 <= name.length(); i++) {
+                    int[] cnt = counts.computeIfAbsent(key(name, i), k -> new int[]{0, -1});
+                    // cnt[1] remembers last name counted, to skip repeated trigrams in the same name
+                    if (cnt[1] != n) {
+                        cnt[0]++;
+                        cnt[1] = n;
+                    }
+                }
+            }
+            int capacity = Integer.highestOneBit(Math.max(counts.size(), 1) * 2 - 1) << 1;
+            keys = new long[capacity];
+            postings = new int[capacity][];
+            mask = capacity - 1;
+            for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+                int slot = slot(entry.getKey());
+                keys[slot] = entry.getKey();
+                postings[slot] = new int[entry.getValue()[0]];
+                entry.getValue()[0] = 0;
+                entry.getValue()[1] = -1;
+            }
+            // second pass: fill posting arrays in name order
+            for (int n = 0; n < names.length; n++) {
+                final String name = names[n];
+                for (int i = 0; i + 3 <= name.length(); i++) {
+                    final long key = key(name, i);
+                    int[] cnt = counts.get(key);
+                    if (cnt[1] != n) {
+                        postings[slot(key)][cnt[0]++] = n;
+                        cnt[1] = n;
+                    }
+                }
+            }
+        }
+
+        static long key(String s, int offset) {
+            // one bit above the chars distinguishes keys from empty slots
+            return 1L << 48 | (long) s.charAt(offset) << 32 | (long) s.charAt(offset + 1) << 16 | s.charAt(offset + 2);
+        }
+
+        int[] get(long key) {
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return postings[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private int slot(long key) {
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
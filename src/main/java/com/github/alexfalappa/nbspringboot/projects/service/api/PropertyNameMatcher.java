@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.api;
+
+import java.util.Locale;
+
+/**
+ * Scores how well a property name matches a completion filter.
+ * <p>
+ * Filter characters must be found in the name in the same order, each one either right after the previous match or at a word
+ * start (name start, dots, dashes and the character following them or a lowercase to uppercase hump), only the first may fall
+ * anywhere. This covers substring, segment-initial ({@code s.d.url} for {@code spring.datasource.url}) and camel-hump
+ * ({@code sdu}) matches. Word starts, consecutive runs and a match at name start raise the score; the best alignment is found
+ * by dynamic programming.
+ * <p>
+ * Not thread safe, create one per query.
+ *
+ * @author Alessandro Falappa
+ */
+final class PropertyNameMatcher {
+
+    /**
+     * Score of names not matching.
+     */
+    static final int NO_MATCH = Integer.MIN_VALUE;
+    private static final int BASE = 1;
+    private static final int WORD_START = 8;
+    private static final int CONSECUTIVE = 10;
+    private static final int GAP = 2;
+    private static final int NAME_START = 10;
+    private final char[] pattern;
+    // scores of the best alignments of the pattern prefix ending at each name position, reused across names
+    private int[] prev = new int[64];
+    private int[] cur = new int[64];
+
+    PropertyNameMatcher(String filter) {
+        // locale independent, as the lowercasing of names, so that e.g. 'I' still matches 'i' in a Turkish locale
+        this.pattern = filter.toLowerCase(Locale.ROOT).toCharArray();
+    }
+
+    /**
+     * Scores a name against the filter.
+     *
+     * @param name the property name
+     * @return the score, higher is better, or {@link #NO_MATCH}
+     */
+    int score(String name) {
+        final int len = name.length();
+        if (pattern.length == 0) {
+            return 0;
+        }
+        if (!isSubsequence(name)) {
+            return NO_MATCH;
+        }
+        if (prev.length < len) {
+            prev = new int[len * 2];
+            cur = new int[len * 2];
+        }
+        // first filter character may match anywhere
+        for (int j = 0; j < len; j++) {
+            if (lower(name.charAt(j)) == pattern[0]) {
+                cur[j] = BASE + (isWordStart(name, j) ? WORD_START : 0) + (j == 0 ? NAME_START : 0);
+            } else {
+                cur[j] = NO_MATCH;
+            }
+        }
+        for (int i = 1; i < pattern.length; i++) {
+            final int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+            // best score of previous character matched at least two positions before
+            int gapBest = NO_MATCH;
+            boolean any = false;
+            for (int j = 0; j < len; j++) {
+                if (j >= 2 && prev[j - 2] > gapBest) {
+                    gapBest = prev[j - 2];
+                }
+                int best = NO_MATCH;
+                if (j >= 1 && lower(name.charAt(j)) == pattern[i]) {
+                    if (prev[j - 1] != NO_MATCH) {
+                        best = prev[j - 1] + BASE + CONSECUTIVE;
+                    }
+                    if (gapBest != NO_MATCH && isWordStart(name, j)) {
+                        best = Math.max(best, gapBest + BASE + WORD_START - GAP);
+                    }
+                }
+                cur[j] = best;
+                any |= best != NO_MATCH;
+            }
+            if (!any) {
+                return NO_MATCH;
+            }
+        }
+        int ret = NO_MATCH;
+        for (int j = 0; j < len; j++) {
+            ret = Math.max(ret, cur[j]);
+        }
+        return ret;
+    }
+
+    // cheap rejection of names not containing all the filter characters in order
+    private boolean isSubsequence(String name) {
+        int i = 0;
+        for (int j = 0; j < name.length() && i < pattern.length; j++) {
+            if (lower(name.charAt(j)) == pattern[i]) {
+                i++;
+            }
+        }
+        return i == pattern.length;
+    }
+
+    private static boolean isWordStart(String name, int j) {
+        if (j == 0) {
+            return true;
+        }
+        final char c = name.charAt(j);
+        final char before = name.charAt(j - 1);
+        return isSeparator(c) || isSeparator(before) || (Character.isUpperCase(c) && Character.isLowerCase(before));
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '.' || c == '-' || c == '_' || c == '[';
+    }
+
+    private static char lower(char c) {
+        return c < 128 ? (c >= 'A' && c <= 'Z' ? (char) (c + 32) : c) : Character.toLowerCase(c);
+    }
+}
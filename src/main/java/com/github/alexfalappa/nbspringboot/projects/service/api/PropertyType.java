@@ -0,0 +1,258 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Classification of a configuration property data type as found in Spring Boot configuration metadata.
+ * <p>
+ * Type strings are parsed once and cached, so that completion and highlighting can query the container kind, the key and
+ * element types and the types with special completion support with field reads. Instances are immutable.
+ *
+ * @author Alessandro Falappa
+ */
+public final class PropertyType {
+
+    /**
+     * Kind of container a type is.
+     */
+    public enum Container {
+        /** Not a container. */
+        NONE,
+        /** Java array. */
+        ARRAY,
+        /** List, set or other collection. */
+        COLLECTION,
+        /** Map. */
+        MAP
+    }
+
+    /** Type of properties without a declared type, e.g. some deprecated ones. */
+    public static final PropertyType UNKNOWN = new PropertyType(null);
+    private static final ConcurrentMap<String, PropertyType> CACHE = new ConcurrentHashMap<>();
+    private static final int F_BOOLEAN = 1;
+    private static final int F_DURATION = 1 << 1;
+    private static final int F_DATASIZE = 1 << 2;
+    private static final int F_CHARSET = 1 << 3;
+    private static final int F_LOCALE = 1 << 4;
+    private static final int F_RESOURCE = 1 << 5;
+    private static final int F_MIMETYPE = 1 << 6;
+    private static final int F_ENUM_CANDIDATE = 1 << 7;
+    private final String name;
+    private final Container container;
+    private final PropertyType keyType;
+    private final PropertyType elementType;
+    private final int flags;
+
+    // unknown type
+    private PropertyType(String name) {
+        this.name = name;
+        this.container = Container.NONE;
+        this.keyType = this;
+        this.elementType = this;
+        this.flags = 0;
+    }
+
+    private PropertyType(String name, Container container, PropertyType keyType, PropertyType elementType, int flags) {
+        this.name = name;
+        this.container = container;
+        this.keyType = keyType != null ? keyType : UNKNOWN;
+        this.elementType = elementType != null ? elementType : this;
+        this.flags = flags;
+    }
+
+    /**
+     * Gets the classification of a type.
+     *
+     * @param type the type string, may be null
+     * @return the classification, {@link #UNKNOWN} if type is null
+     */
+    public static PropertyType of(String type) {
+        if (type == null) {
+            return UNKNOWN;
+        }
+        PropertyType ret = CACHE.get(type);
+        if (ret == null) {
+            ret = parse(type);
+            final PropertyType prev = CACHE.putIfAbsent(type, ret);
+            if (prev != null) {
+                ret = prev;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * The full type string.
+     *
+     * @return the type as in metadata, null for {@link #UNKNOWN}
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Container getContainer() {
+        return container;
+    }
+
+    public boolean isMap() {
+        return container == Container.MAP;
+    }
+
+    /**
+     * Tells if values are comma separated lists, i.e. the type is an array or a collection.
+     *
+     * @return true for arrays and collections
+     */
+    public boolean isSequence() {
+        return container == Container.ARRAY || container == Container.COLLECTION;
+    }
+
+    /**
+     * Type of map keys.
+     *
+     * @return the key type, {@link #UNKNOWN} if not a map
+     */
+    public PropertyType getKeyType() {
+        return keyType;
+    }
+
+    /**
+     * Type of single values: map values, collection or array elements, this type if not a container.
+     *
+     * @return the element type
+     */
+    public PropertyType getElementType() {
+        return elementType;
+    }
+
+    public boolean isBoolean() {
+        return (flags & F_BOOLEAN) != 0;
+    }
+
+    public boolean isDuration() {
+        return (flags & F_DURATION) != 0;
+    }
+
+    public boolean isDataSize() {
+        return (flags & F_DATASIZE) != 0;
+    }
+
+    public boolean isCharset() {
+        return (flags & F_CHARSET) != 0;
+    }
+
+    public boolean isLocale() {
+        return (flags & F_LOCALE) != 0;
+    }
+
+    public boolean isResource() {
+        return (flags & F_RESOURCE) != 0;
+    }
+
+    public boolean isMimeType() {
+        return (flags & F_MIMETYPE) != 0;
+    }
+
+    /**
+     * Tells if the type may be an enum, i.e. it is a non generic class type outside of {@code java.lang} and not one of the
+     * other recognized types.
+     * <p>
+     * Actual enums are found loading the class from the project classpath.
+     *
+     * @return true if the type may be an enum
+     */
+    public boolean isEnumCandidate() {
+        return (flags & F_ENUM_CANDIDATE) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(name);
+    }
+
+    private static PropertyType parse(String type) {
+        if (type.endsWith("[]")) {
+            return new PropertyType(type, Container.ARRAY, null, of(type.substring(0, type.length() - 2)), 0);
+        }
+        final int lt = type.indexOf('<');
+        if (lt > 0 && type.endsWith(">")) {
+            final String raw = type.substring(0, lt);
+            final String args = type.substring(lt + 1, type.length() - 1);
+            final int comma = topLevelComma(args);
+            if (comma < 0 && (raw.endsWith("List") || raw.endsWith("Set") || raw.endsWith("Collection"))) {
+                return new PropertyType(type, Container.COLLECTION, null, of(args.trim()), 0);
+            }
+            if (comma > 0 && raw.endsWith("Map")) {
+                return new PropertyType(type, Container.MAP, of(args.substring(0, comma).trim()),
+                        of(args.substring(comma + 1).trim()), 0);
+            }
+            // other generic types are plain values
+            return new PropertyType(type, Container.NONE, null, null, 0);
+        }
+        return new PropertyType(type, Container.NONE, null, null, flagsOf(type));
+    }
+
+    private static int flagsOf(String type) {
+        switch (type) {
+            case "java.lang.Boolean":
+            case "boolean":
+                return F_BOOLEAN;
+            case "java.time.Duration":
+                return F_DURATION;
+            case "org.springframework.util.unit.DataSize":
+                return F_DATASIZE;
+            case "java.nio.charset.Charset":
+                return F_CHARSET;
+            case "java.util.Locale":
+                return F_LOCALE;
+            case "org.springframework.core.io.Resource":
+                return F_RESOURCE;
+            case "org.springframework.util.MimeType":
+                return F_MIMETYPE;
+            default:
+                if (type.indexOf('.') < 0 || type.startsWith("java.lang.")) {
+                    // primitives and core language types
+                    return 0;
+                }
+                return F_ENUM_CANDIDATE;
+        }
+    }
+
+    // index of the comma separating two type arguments, ignoring commas of nested type arguments
+    private static int topLevelComma(String args) {
+        int depth = 0;
+        for (int i = 0; i < args.length(); i++) {
+            switch (args.charAt(i)) {
+                case '<':
+                    depth++;
+                    break;
+                case '>':
+                    depth--;
+                    break;
+                case ',':
+                    if (depth == 0) {
+                        return i;
+                    }
+                    break;
+                default:
+            }
+        }
+        return -1;
+    }
+}
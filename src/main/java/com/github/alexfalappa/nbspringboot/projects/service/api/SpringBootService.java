@@ -18,6 +18,8 @@ package com.github.alexfalappa.nbspringboot.projects.service.api;
 import java.util.List;
 import java.util.Set;
 
+import javax.swing.event.ChangeListener;
+
 import org.netbeans.api.java.classpath.ClassPath;
 import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
 
@@ -33,8 +35,14 @@ public interface SpringBootService {
 
     void refresh();
 
+    void addChangeListener(ChangeListener listener);
+
+    void removeChangeListener(ChangeListener listener);
+
     ClassPath getManagedClassPath();
 
+    ClassLoader getManagedClassLoader();
+
     Set<String> getPropertyNames();
 
     Set<String> getCollectionPropertyNames();
@@ -43,10 +51,26 @@ public interface SpringBootService {
 
     ConfigurationMetadataProperty getPropertyMetadata(String propertyName);
 
+    ConfigurationMetadataProperty findMapPropertyMetadata(String propertyName);
+
     List<ConfigurationMetadataProperty> queryPropertyMetadata(String filter);
 
+    List<ConfigurationMetadataProperty> matchPropertyMetadata(String filter);
+
+    List<PropertyNameIndex.Segment> getPropertySegments(String path);
+
     HintProvider getHintProvider(String name);
 
+    /**
+     * Tells if the configuration metadata of the project classpath has been built since the service was activated.
+     * <p>
+     * Until then queries are answered from empty or precompiled metadata, properties missing from it may still be known.
+     * Listeners are notified when metadata is published.
+     *
+     * @return true once the classpath metadata is published
+     */
+    boolean isMetadataReady();
+
     boolean hasPomDependency(String artifactId);
 
     String getRestartEnvVarName();
@@ -24,7 +24,6 @@ import java.util.Set;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
 
-import org.netbeans.api.java.classpath.ClassPath;
 import org.netbeans.api.java.source.ClassIndex;
 import org.netbeans.api.java.source.ClasspathInfo;
 import org.netbeans.api.java.source.ElementHandle;
@@ -34,6 +33,7 @@ import org.springframework.boot.configurationmetadata.ConfigurationMetadataPrope
 
 import com.github.alexfalappa.nbspringboot.cfgprops.completion.items.JavaTypeCompletionItem;
 import com.github.alexfalappa.nbspringboot.projects.service.api.HintProvider;
+import com.github.alexfalappa.nbspringboot.projects.service.api.SpringBootService;
 
 /**
  * Implementation of {@link HintProvider} for class references.
@@ -45,11 +45,11 @@ public class ClassReferenceHintProvider implements HintProvider {
     private static final EnumSet<ClassIndex.SearchScope> SEARCH_SCOPE = EnumSet.allOf(ClassIndex.SearchScope.class);
     private final Set<ClassIndex.SearchKind> searchKind = Collections.singleton(ClassIndex.SearchKind.IMPLEMENTORS);
     private final ClassIndex classIndex;
-    private final ClassPath cpExec;
+    private final SpringBootService sbs;
 
-    public ClassReferenceHintProvider(FileObject referenceFolder, ClassPath cpExec) {
+    public ClassReferenceHintProvider(FileObject referenceFolder, SpringBootService sbs) {
         this.classIndex = ClasspathInfo.create(referenceFolder).getClassIndex();
-        this.cpExec = cpExec;
+        this.sbs = sbs;
     }
 
     @Override
@@ -78,7 +78,10 @@ public class ClassReferenceHintProvider implements HintProvider {
 
     private void populate(Set<ElementHandle<TypeElement>> elements, String filter, boolean concrete,
             CompletionResultSet completionResultSet, int dotOffset, int caretOffset) throws IllegalStateException {
-        final ClassLoader classLoader = cpExec.getClassLoader(true);
+        final ClassLoader classLoader = sbs.getManagedClassLoader();
+        if (classLoader == null) {
+            return;
+        }
         String filterLowcase = filter.toLowerCase();
         elements.forEach(handle -> {
             final String binaryName = handle.getBinaryName();
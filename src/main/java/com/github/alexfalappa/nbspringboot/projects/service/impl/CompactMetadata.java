@@ -0,0 +1,519 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+import org.springframework.boot.configurationmetadata.Deprecation;
+import org.springframework.boot.configurationmetadata.Hints;
+
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyType;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact representation of the configuration properties of a metadata source.
+ * <p>
+ * Type names are interned and equal deprecations are shared by all properties of all sources. Descriptions and hints are kept
+ * as raw JSON slices in a single byte array: descriptions are decoded each time they are requested, hints are decoded on first
+ * request and shared by properties having equal hints. Properties are exposed as {@link ConfigurationMetadataProperty}
+ * subclasses adapting the compact model to the existing API.
+ * <p>
+ * Built by {@link MetadataJsonReader}, has a binary encoding used to persist sources in the {@link ConfigMetadataIndex}.
+ *
+ * @author Alessandro Falappa
+ */
+final class CompactMetadata {
+
+    private static final Hints NO_HINTS = new Hints();
+    // deprecations in use by any source, keyed by binary encoding, entries of collected ones are purged on next access
+    private static final Map<ByteBuffer, DeprecationRef> SHARED_DEPRECATIONS = new HashMap<>();
+    private static final ReferenceQueue<Deprecation> COLLECTED_DEPRECATIONS = new ReferenceQueue<>();
+    // tags of encoded values
+    private static final byte T_NULL = 0;
+    private static final byte T_STRING = 1;
+    private static final byte T_BOOLEAN = 2;
+    private static final byte T_INTEGER = 3;
+    private static final byte T_LONG = 4;
+    private static final byte T_DOUBLE = 5;
+    private static final byte T_ARRAY = 6;
+    private static final byte T_MAP = 7;
+    private static final byte T_BIGINTEGER = 8;
+    private static final byte T_BIGDECIMAL = 9;
+    private final byte[] blob;
+    private final String[] types;
+    private final Deprecation[] deprecations;
+    // offset and length in blob of each distinct hints slice, and lazily decoded hints
+    private final int[] hintSlices;
+    private final AtomicReferenceArray<Hints> decodedHints;
+    private final Map<String, ConfigurationMetadataProperty> properties;
+
+    private CompactMetadata(byte[] blob, String[] types, Deprecation[] deprecations, int[] hintSlices, int size) {
+        this.blob = blob;
+        this.types = types;
+        this.deprecations = deprecations;
+        this.hintSlices = hintSlices;
+        this.decodedHints = new AtomicReferenceArray<>(hintSlices.length / 2);
+        this.properties = new HashMap<>(size * 4 / 3 + 1);
+        // classify types up front, completion and highlighting then find them cached
+        for (String type : types) {
+            PropertyType.of(type);
+        }
+    }
+
+    /**
+     * Decodes compact metadata from its binary encoding.
+     *
+     * @param in the input to read from
+     * @return the compact metadata
+     * @throws IOException in case of read errors or malformed input
+     */
+    static CompactMetadata readFrom(DataInput in) throws IOException {
+        final String[] types = new String[in.readInt()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = readString(in).intern();
+        }
+        final Deprecation[] deprecations = new Deprecation[in.readInt()];
+        for (int i = 0; i < deprecations.length; i++) {
+            final Deprecation depr = readDeprecation(in);
+            deprecations[i] = sharedDeprecation(ByteBuffer.wrap(encodeDeprecation(depr)), depr);
+        }
+        final int[] hintSlices = new int[in.readInt()];
+        for (int i = 0; i < hintSlices.length; i++) {
+            hintSlices[i] = in.readInt();
+        }
+        final byte[] blob = new byte[in.readInt()];
+        in.readFully(blob);
+        final int size = in.readInt();
+        CompactMetadata ret = new CompactMetadata(blob, types, deprecations, hintSlices, size);
+        for (int i = 0; i < size; i++) {
+            ret.add(readString(in), in.readInt(), in.readInt(), in.readInt(), readValue(in), in.readInt(), in.readInt());
+        }
+        return ret;
+    }
+
+    /**
+     * Writes the binary encoding of this compact metadata.
+     *
+     * @param out the output to write to
+     * @throws IOException in case of write errors
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(types.length);
+        for (String type : types) {
+            writeString(out, type);
+        }
+        out.writeInt(deprecations.length);
+        for (Deprecation depr : deprecations) {
+            writeDeprecation(out, depr);
+        }
+        out.writeInt(hintSlices.length);
+        for (int val : hintSlices) {
+            out.writeInt(val);
+        }
+        out.writeInt(blob.length);
+        out.write(blob);
+        out.writeInt(properties.size());
+        for (ConfigurationMetadataProperty prop : properties.values()) {
+            final CompactProperty cp = (CompactProperty) prop;
+            writeString(out, cp.getId());
+            out.writeInt(cp.typeIdx);
+            out.writeInt(cp.descOffset);
+            out.writeInt(cp.descLength);
+            writeValue(out, cp.getDefaultValue());
+            out.writeInt(cp.deprIdx);
+            out.writeInt(cp.hintsIdx);
+        }
+    }
+
+    /**
+     * Properties of the metadata source.
+     *
+     * @return an unmodifiable map of properties keyed by id
+     */
+    Map<String, ConfigurationMetadataProperty> properties() {
+        return Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Extracts the first sentence of a description, as done by the Spring Boot metadata JSON reader.
+     *
+     * @param text the description
+     * @return the first sentence or null if text is null
+     */
+    static String firstSentence(String text) {
+        if (text == null) {
+            return null;
+        }
+        final String lineSep = System.lineSeparator();
+        if (text.indexOf('.') != -1) {
+            BreakIterator breakIterator = BreakIterator.getSentenceInstance(Locale.US);
+            breakIterator.setText(text);
+            final String sentence = text.substring(breakIterator.first(), breakIterator.next()).trim();
+            StringBuilder sb = new StringBuilder(sentence.length());
+            for (String line : sentence.split(lineSep)) {
+                sb.append(line.trim());
+            }
+            return sb.toString();
+        }
+        return text.split(lineSep)[0].trim();
+    }
+
+    private void add(String id, int typeIdx, int descOffset, int descLength, Object defaultValue, int deprIdx, int hintsIdx) {
+        properties.put(id, new CompactProperty(this, id, typeIdx, descOffset, descLength, defaultValue, deprIdx, hintsIdx));
+    }
+
+    private Hints hints(int idx) {
+        Hints ret = decodedHints.get(idx);
+        if (ret == null) {
+            ret = MetadataJsonReader.decodeHints(blob, hintSlices[idx * 2], hintSlices[idx * 2 + 1]);
+            // concurrent decoders may race, the first one wins
+            if (!decodedHints.compareAndSet(idx, null, ret)) {
+                ret = decodedHints.get(idx);
+            }
+        }
+        return ret;
+    }
+
+    private static void writeDeprecation(DataOutput out, Deprecation depr) throws IOException {
+        out.writeByte(depr.getLevel() != null ? depr.getLevel().ordinal() : -1);
+        writeString(out, depr.getReason());
+        writeString(out, depr.getShortReason());
+        writeString(out, depr.getReplacement());
+    }
+
+    private static byte[] encodeDeprecation(Deprecation depr) {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(baos)) {
+            writeDeprecation(dos, depr);
+        } catch (IOException ex) {
+            // cannot happen writing to memory
+            throw new IllegalStateException(ex);
+        }
+        return baos.toByteArray();
+    }
+
+    // an equal deprecation already in use by some source, or the given one registered as such
+    private static Deprecation sharedDeprecation(ByteBuffer key, Deprecation depr) {
+        synchronized (SHARED_DEPRECATIONS) {
+            for (Reference<? extends Deprecation> ref; (ref = COLLECTED_DEPRECATIONS.poll()) != null;) {
+                SHARED_DEPRECATIONS.remove(((DeprecationRef) ref).key, ref);
+            }
+            final DeprecationRef ref = SHARED_DEPRECATIONS.get(key);
+            final Deprecation ret = ref != null ? ref.get() : null;
+            if (ret != null) {
+                return ret;
+            }
+            SHARED_DEPRECATIONS.put(key, new DeprecationRef(key, depr));
+            return depr;
+        }
+    }
+
+    private static Deprecation readDeprecation(DataInput in) throws IOException {
+        Deprecation ret = new Deprecation();
+        final byte level = in.readByte();
+        ret.setLevel(level >= 0 ? Deprecation.Level.values()[level] : null);
+        ret.setReason(readString(in));
+        ret.setShortReason(readString(in));
+        ret.setReplacement(readString(in));
+        return ret;
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = s.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    // values are those produced by the metadata JSON reader: strings, booleans, numbers, arrays and maps of them
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(T_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(T_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(T_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(T_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(T_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(T_BIGINTEGER);
+            writeString(out, value.toString());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(T_BIGDECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof Object[]) {
+            final Object[] array = (Object[]) value;
+            out.writeByte(T_ARRAY);
+            out.writeInt(array.length);
+            for (Object item : array) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(T_MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(out, String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+        } else {
+            out.writeByte(T_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        final byte tag = in.readByte();
+        switch (tag) {
+            case T_NULL:
+                return null;
+            case T_STRING:
+                return readString(in);
+            case T_BOOLEAN:
+                return in.readBoolean();
+            case T_INTEGER:
+                return in.readInt();
+            case T_LONG:
+                return in.readLong();
+            case T_DOUBLE:
+                return in.readDouble();
+            case T_BIGINTEGER:
+                return new BigInteger(readString(in));
+            case T_BIGDECIMAL:
+                return new BigDecimal(readString(in));
+            case T_ARRAY:
+                final Object[] array = new Object[in.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readValue(in);
+                }
+                return array;
+            case T_MAP:
+                final int size = in.readInt();
+                final Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readString(in), readValue(in));
+                }
+                return map;
+            default:
+                throw new IOException("unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Accumulates properties read from a metadata JSON file.
+     */
+    static final class Builder {
+
+        private final ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        private final Map<String, Integer> typeIdx = new HashMap<>();
+        private final List<String> types = new ArrayList<>();
+        private final Map<ByteBuffer, Integer> deprIdx = new HashMap<>();
+        private final List<Deprecation> deprecations = new ArrayList<>();
+        private final Map<ByteBuffer, Integer> hintsIdx = new HashMap<>();
+        private int[] hintSlices = new int[16];
+        // property records: type index, description offset and length, deprecation index, hints index
+        private final Map<String, int[]> records = new LinkedHashMap<>();
+        private final Map<String, Object> defaultValues = new HashMap<>();
+
+        /**
+         * Adds or replaces a property.
+         *
+         * @param id the property id
+         * @param type the property type, may be null
+         * @param source the bytes of the JSON file
+         * @param descOffset offset in source of the description JSON string literal, -1 if none
+         * @param descLength length in bytes of the description JSON string literal
+         * @param defaultValue the default value, may be null
+         * @param deprecation the deprecation, may be null
+         */
+        void property(String id, String type, byte[] source, int descOffset, int descLength, Object defaultValue,
+                Deprecation deprecation) {
+            final int[] rec = new int[]{-1, -1, 0, -1, -1};
+            if (type != null) {
+                rec[0] = typeIdx.computeIfAbsent(type, t -> {
+                    types.add(t.intern());
+                    return types.size() - 1;
+                });
+            }
+            if (descOffset >= 0) {
+                rec[1] = blob.size();
+                rec[2] = descLength;
+                blob.write(source, descOffset, descLength);
+            }
+            if (deprecation != null) {
+                rec[3] = dedupeDeprecation(deprecation);
+            }
+            records.put(id, rec);
+            if (defaultValue != null) {
+                defaultValues.put(id, defaultValue);
+            } else {
+                defaultValues.remove(id);
+            }
+        }
+
+        /**
+         * Tells if a property has been added.
+         *
+         * @param id the property id
+         * @return true if the property is known
+         */
+        boolean hasProperty(String id) {
+            return records.containsKey(id);
+        }
+
+        /**
+         * Sets the hints of a property as a JSON array of two arrays, respectively of key and value hint objects.
+         * <p>
+         * Equal hints are stored once.
+         *
+         * @param id the property id
+         * @param hintsJson the hints JSON bytes
+         */
+        void hints(String id, byte[] hintsJson) {
+            final int[] rec = records.get(id);
+            if (rec == null) {
+                return;
+            }
+            rec[4] = hintsIdx.computeIfAbsent(ByteBuffer.wrap(hintsJson), k -> {
+                final int idx = hintsIdx.size();
+                if (hintSlices.length < idx * 2 + 2) {
+                    hintSlices = Arrays.copyOf(hintSlices, hintSlices.length * 2);
+                }
+                hintSlices[idx * 2] = blob.size();
+                hintSlices[idx * 2 + 1] = hintsJson.length;
+                blob.write(hintsJson, 0, hintsJson.length);
+                return idx;
+            });
+        }
+
+        /**
+         * Builds the compact metadata.
+         *
+         * @return the compact metadata
+         */
+        CompactMetadata build() {
+            CompactMetadata ret = new CompactMetadata(blob.toByteArray(), types.toArray(new String[types.size()]),
+                    deprecations.toArray(new Deprecation[deprecations.size()]), Arrays.copyOf(hintSlices, hintsIdx.size() * 2),
+                    records.size());
+            for (Map.Entry<String, int[]> entry : records.entrySet()) {
+                final int[] rec = entry.getValue();
+                ret.add(entry.getKey(), rec[0], rec[1], rec[2], defaultValues.get(entry.getKey()), rec[3], rec[4]);
+            }
+            return ret;
+        }
+
+        // index of an equal deprecation, added if not present, equality is by binary encoding
+        private int dedupeDeprecation(Deprecation depr) {
+            return deprIdx.computeIfAbsent(ByteBuffer.wrap(encodeDeprecation(depr)), k -> {
+                deprecations.add(sharedDeprecation(k, depr));
+                return deprecations.size() - 1;
+            });
+        }
+    }
+
+    // a property whose descriptions are decoded on demand and whose hints are shared
+    private static final class CompactProperty extends ConfigurationMetadataProperty {
+
+        private static final long serialVersionUID = 1L;
+        private final CompactMetadata owner;
+        private final int typeIdx;
+        private final int descOffset;
+        private final int descLength;
+        private final int deprIdx;
+        private final int hintsIdx;
+
+        CompactProperty(CompactMetadata owner, String id, int typeIdx, int descOffset, int descLength, Object defaultValue,
+                int deprIdx, int hintsIdx) {
+            this.owner = owner;
+            this.typeIdx = typeIdx;
+            this.descOffset = descOffset;
+            this.descLength = descLength;
+            this.deprIdx = deprIdx;
+            this.hintsIdx = hintsIdx;
+            setId(id);
+            setType(typeIdx >= 0 ? owner.types[typeIdx] : null);
+            setDefaultValue(defaultValue);
+            setDeprecation(deprIdx >= 0 ? owner.deprecations[deprIdx] : null);
+        }
+
+        @Override
+        public String getDescription() {
+            return descOffset < 0 ? null : MetadataJsonReader.decodeString(owner.blob, descOffset, descLength);
+        }
+
+        @Override
+        public String getShortDescription() {
+            return firstSentence(getDescription());
+        }
+
+        @Override
+        public Hints getHints() {
+            return hintsIdx >= 0 ? owner.hints(hintsIdx) : NO_HINTS;
+        }
+    }
+
+    // weak reference to a shared deprecation remembering its key
+    private static final class DeprecationRef extends WeakReference<Deprecation> {
+
+        private final ByteBuffer key;
+
+        DeprecationRef(ByteBuffer key, Deprecation depr) {
+            super(depr, COLLECTED_DEPRECATIONS);
+            this.key = key;
+        }
+    }
+}
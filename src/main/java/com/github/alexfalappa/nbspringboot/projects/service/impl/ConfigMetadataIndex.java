@@ -0,0 +1,423 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.modules.Places;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.INFO;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Persistent binary index of the configuration metadata found in classpath jars.
+ * <p>
+ * Keeps in a file of the IDE cache folder the {@link CompactMetadata} of each jar, in its own binary encoding, keyed by jar
+ * path and validated against the jar size and last modification time. Each entry payload is protected by a CRC32 checksum.
+ * <p>
+ * The file is memory-mapped on load and entries are deserialized only when requested, so that on IDE restart the metadata
+ * JSON files of unchanged jars need not be parsed again. Each save writes a new generation of the file, numbered in its name.
+ * Files written with a different format version are discarded. A file that cannot be read for transient reasons (e.g. the
+ * loading refresh thread being interrupted) is kept and loading is retried on next access.
+ * <p>
+ * Shared by all projects and safe for concurrent use, entries are encoded and decoded outside of locks.
+ *
+ * @author Alessandro Falappa
+ */
+final class ConfigMetadataIndex {
+
+    static final int FORMAT_VERSION = 3;
+    private static final Logger logger = Logger.getLogger(ConfigMetadataIndex.class.getName());
+    private static final int MAGIC = 0x4E42_4349;
+    private static final String INDEX_FILE = "nb-springboot/cfgmeta.idx";
+    private static ConfigMetadataIndex instance;
+    private final Path indexPath;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean dirty = false;
+    private long generation;
+    // false until the latest generation file has been read or found missing or discarded
+    private boolean loaded;
+
+    ConfigMetadataIndex(Path indexPath) {
+        this.indexPath = indexPath;
+        this.loaded = load();
+    }
+
+    /**
+     * Gets the IDE wide index instance, loading it from the cache folder on first access.
+     *
+     * @return the shared index
+     */
+    static synchronized ConfigMetadataIndex getDefault() {
+        if (instance == null) {
+            instance = new ConfigMetadataIndex(Places.getCacheSubfile(INDEX_FILE).toPath());
+        }
+        return instance;
+    }
+
+    /**
+     * Retrieves the configuration metadata previously stored for the given jar.
+     *
+     * @param archiveFo the jar file object
+     * @return the stored metadata or null if missing, stale or unreadable
+     */
+    CompactMetadata lookup(FileObject archiveFo) {
+        final File jar = FileUtil.toFile(archiveFo);
+        return jar != null ? lookup(jar) : null;
+    }
+
+    /**
+     * Retrieves the configuration metadata previously stored for the given jar.
+     *
+     * @param jar the jar file on the local filesystem
+     * @return the stored metadata or null if missing, stale or unreadable
+     */
+    CompactMetadata lookup(File jar) {
+        final String key = jar.getAbsolutePath();
+        final byte[] payload;
+        final long checksum;
+        synchronized (this) {
+            ensureLoaded();
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.size != jar.length() || entry.lastModified != jar.lastModified()) {
+                logger.log(FINE, "Stale metadata index entry for {0}", key);
+                entries.remove(key);
+                dirty = true;
+                return null;
+            }
+            payload = entry.payload();
+            checksum = entry.checksum;
+        }
+        // decode outside of lock, lookups may happen concurrently
+        try {
+            if (checksum != checksum(payload)) {
+                throw new IOException("checksum mismatch");
+            }
+            return CompactMetadata.readFrom(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (IOException | RuntimeException ex) {
+            logger.log(WARNING, "Discarding corrupted metadata index entry for {0}: {1}", new Object[]{key, ex.toString()});
+            synchronized (this) {
+                entries.remove(key);
+                dirty = true;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the configuration metadata of the given jar, replacing any previous entry.
+     * <p>
+     * Changes are persisted by {@link #save()}.
+     *
+     * @param archiveFo the jar file object
+     * @param metadata the configuration metadata of the jar
+     */
+    void store(FileObject archiveFo, CompactMetadata metadata) {
+        final File jar = FileUtil.toFile(archiveFo);
+        if (jar != null) {
+            store(jar, metadata);
+        }
+    }
+
+    /**
+     * Stores the configuration metadata of the given jar, replacing any previous entry.
+     * <p>
+     * Changes are persisted by {@link #save()}.
+     *
+     * @param jar the jar file on the local filesystem
+     * @param metadata the configuration metadata of the jar
+     */
+    void store(File jar, CompactMetadata metadata) {
+        final String key = jar.getAbsolutePath();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(baos)) {
+            metadata.writeTo(dos);
+        } catch (IOException ex) {
+            // cannot happen writing to memory
+            logger.log(WARNING, "Cannot index metadata of {0}: {1}", new Object[]{key, ex.toString()});
+            return;
+        }
+        final byte[] payload = baos.toByteArray();
+        final Entry entry = new Entry(jar.length(), jar.lastModified(), checksum(payload), payload);
+        synchronized (this) {
+            ensureLoaded();
+            entries.put(key, entry);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Writes the index to disk if modified since last load or save.
+     * <p>
+     * Entries of jars no longer existing are pruned. The index is written to a temporary file then moved to a new generation
+     * file, never over the mapped one: some platforms (e.g. Windows) do not allow replacing or deleting a mapped file. Entries
+     * are then rebound to the new file and older generations deleted, those still mapped on the next save.
+     */
+    synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        ensureLoaded();
+        if (!loaded) {
+            // saving now would write a generation without the entries on disk and delete them
+            logger.fine("Configuration metadata index not loaded, save postponed");
+            return;
+        }
+        for (Iterator<String> it = entries.keySet().iterator(); it.hasNext();) {
+            if (!new File(it.next()).isFile()) {
+                it.remove();
+            }
+        }
+        final long newGeneration = generation + 1;
+        final Path newPath = generationPath(newGeneration);
+        final Path tmpPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        final Entry[] written = new Entry[entries.size()];
+        final int[] offsets = new int[written.length];
+        try {
+            try (OutputStream os = Files.newOutputStream(tmpPath);
+                    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os))) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(FORMAT_VERSION);
+                dos.writeInt(entries.size());
+                int i = 0;
+                for (Map.Entry<String, Entry> me : entries.entrySet()) {
+                    final Entry entry = me.getValue();
+                    final byte[] pathBytes = me.getKey().getBytes(UTF_8);
+                    final byte[] payload = entry.payload();
+                    dos.writeInt(pathBytes.length);
+                    dos.write(pathBytes);
+                    dos.writeLong(entry.size);
+                    dos.writeLong(entry.lastModified);
+                    dos.writeLong(entry.checksum);
+                    dos.writeInt(payload.length);
+                    written[i] = entry;
+                    offsets[i++] = dos.size();
+                    dos.write(payload);
+                }
+            }
+            Files.move(tmpPath, newPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            logger.log(WARNING, "Cannot save configuration metadata index: {0}", ex.toString());
+            return;
+        }
+        generation = newGeneration;
+        dirty = false;
+        logger.log(FINE, "Saved configuration metadata index generation {0} with {1} entries",
+                new Object[]{newGeneration, entries.size()});
+        // release the previous mapping, entries not rebound keep their payload in memory
+        try (FileChannel fc = FileChannel.open(newPath, StandardOpenOption.READ)) {
+            final MappedByteBuffer mbb = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+            for (int i = 0; i < written.length; i++) {
+                written[i].rebind(mbb, offsets[i]);
+            }
+        } catch (IOException ex) {
+            logger.log(FINE, "Cannot map saved configuration metadata index: {0}", ex.toString());
+        }
+        deleteOlderGenerations();
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            loaded = load();
+        }
+    }
+
+    // map the latest index generation file and register its entries not stored meanwhile, payloads are not decoded, returns
+    // false if the file could not be read for transient reasons and loading must be retried
+    private boolean load() {
+        generation = latestGeneration();
+        final Path genPath = generationPath(generation);
+        if (generation == 0 || !Files.isRegularFile(genPath)) {
+            return true;
+        }
+        final Map<String, Entry> read = new HashMap<>();
+        try (FileChannel fc = FileChannel.open(genPath, StandardOpenOption.READ)) {
+            final MappedByteBuffer mbb = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+            if (mbb.getInt() != MAGIC) {
+                throw new IllegalStateException("not a metadata index file");
+            }
+            final int version = mbb.getInt();
+            if (version != FORMAT_VERSION) {
+                logger.log(INFO, "Discarding configuration metadata index with format version {0}", version);
+                dirty = true;
+                return true;
+            }
+            final int count = mbb.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] pathBytes = new byte[mbb.getInt()];
+                mbb.get(pathBytes);
+                final long size = mbb.getLong();
+                final long lastModified = mbb.getLong();
+                final long checksum = mbb.getLong();
+                final int length = mbb.getInt();
+                final int offset = mbb.position();
+                mbb.position(offset + length);
+                read.put(new String(pathBytes, UTF_8), new Entry(size, lastModified, checksum, mbb, offset, length));
+            }
+        } catch (IOException ex) {
+            // e.g. ClosedByInterruptException when a newer pom change cancels the refresh, the file on disk is still good
+            logger.log(FINE, "Cannot read configuration metadata index, will retry: {0}", ex.toString());
+            return false;
+        } catch (RuntimeException ex) {
+            // bad magic number, truncated or malformed content
+            logger.log(WARNING, "Discarding unreadable configuration metadata index: {0}", ex.toString());
+            dirty = true;
+            return true;
+        }
+        read.forEach(entries::putIfAbsent);
+        logger.log(FINE, "Loaded configuration metadata index generation {0} with {1} entries",
+                new Object[]{generation, read.size()});
+        deleteOlderGenerations();
+        return true;
+    }
+
+    private Path generationPath(long gen) {
+        return indexPath.resolveSibling(indexPath.getFileName() + "." + gen);
+    }
+
+    // highest generation number among the index files, 0 if none
+    private long latestGeneration() {
+        long ret = 0;
+        for (Path path : generationFiles()) {
+            ret = Math.max(ret, generationOf(path));
+        }
+        return ret;
+    }
+
+    // delete generation files other than the current one and the file of the single generation format, if not in use
+    private void deleteOlderGenerations() {
+        final List<Path> stale = generationFiles();
+        stale.add(indexPath);
+        for (Path path : stale) {
+            if (!path.equals(generationPath(generation))) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ex) {
+                    // still mapped, deleted on next save
+                    logger.log(FINE, "Cannot delete old configuration metadata index {0}: {1}",
+                            new Object[]{path.getFileName(), ex.toString()});
+                }
+            }
+        }
+    }
+
+    private List<Path> generationFiles() {
+        final List<Path> ret = new ArrayList<>();
+        final Path dir = indexPath.getParent();
+        if (dir != null && Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, indexPath.getFileName() + ".*")) {
+                for (Path path : ds) {
+                    if (generationOf(path) > 0) {
+                        ret.add(path);
+                    }
+                }
+            } catch (IOException ex) {
+                logger.log(FINE, "Cannot list configuration metadata index files: {0}", ex.toString());
+            }
+        }
+        return ret;
+    }
+
+    // generation number from the file name suffix, 0 if not a generation file
+    private long generationOf(Path path) {
+        final String suffix = path.getFileName().toString().substring(indexPath.getFileName().toString().length() + 1);
+        for (int i = 0; i < suffix.length(); i++) {
+            if (!Character.isDigit(suffix.charAt(i))) {
+                return 0;
+            }
+        }
+        return suffix.isEmpty() || suffix.length() > 18 ? 0 : Long.parseLong(suffix);
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    // an index entry, payload either in memory or in a region of the mapped index file
+    private static final class Entry {
+
+        private final long size;
+        private final long lastModified;
+        private final long checksum;
+        private final int length;
+        private ByteBuffer mapped;
+        private int offset;
+        private byte[] bytes;
+
+        Entry(long size, long lastModified, long checksum, byte[] bytes) {
+            this(size, lastModified, checksum, null, 0, bytes.length);
+            this.bytes = bytes;
+        }
+
+        Entry(long size, long lastModified, long checksum, ByteBuffer mapped, int offset, int length) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+            this.mapped = mapped;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        byte[] payload() {
+            if (bytes != null) {
+                return bytes;
+            }
+            byte[] ret = new byte[length];
+            ByteBuffer dup = mapped.duplicate();
+            dup.position(offset);
+            dup.get(ret);
+            return ret;
+        }
+
+        // point the payload to its copy in a newly written index file, dropping any previous mapping or memory copy
+        void rebind(ByteBuffer mapped, int offset) {
+            this.mapped = mapped;
+            this.offset = offset;
+            this.bytes = null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.FINE;
+
+/**
+ * Constant names of an enum type as offered by value completion.
+ * <p>
+ * Names are kept lowercased both as declared and in the canonical dashed form used in configuration files. Instances are cached
+ * per class loader and type, including empty ones for types that are missing or not enums, so that after the first request
+ * completing enum values is a pure in-memory filter. The project class loader is replaced when the classpath changes, starting
+ * a new cache generation.
+ *
+ * @author Alessandro Falappa
+ */
+public final class EnumValues {
+
+    /**
+     * Values of a type that is not an enum or cannot be loaded.
+     */
+    public static final EnumValues NONE = new EnumValues(new String[0]);
+    private static final Logger logger = Logger.getLogger(EnumValues.class.getName());
+    private static final Map<ClassLoader, Map<String, EnumValues>> GENERATIONS = new WeakHashMap<>();
+    private final String[] names;
+    private final String[] dashedNames;
+
+    private EnumValues(String[] names) {
+        this.names = names;
+        this.dashedNames = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            dashedNames[i] = names[i].replace('_', '-');
+        }
+    }
+
+    /**
+     * Gets the values of an enum type loadable by a class loader.
+     *
+     * @param cl the class loader, usually the managed one of the project
+     * @param type the fully qualified type name
+     * @return the cached values, {@link #NONE} if the type is missing or not an enum
+     */
+    public static EnumValues of(ClassLoader cl, String type) {
+        if (cl == null || type == null) {
+            return NONE;
+        }
+        Map<String, EnumValues> gen;
+        synchronized (GENERATIONS) {
+            gen = GENERATIONS.computeIfAbsent(cl, k -> new ConcurrentHashMap<>());
+        }
+        return gen.computeIfAbsent(type, t -> load(cl, t));
+    }
+
+    /**
+     * Passes to a consumer the dashed names of values matching a filter.
+     * <p>
+     * A value matches if either its declared or dashed lowercased name contains the filter.
+     *
+     * @param filter the string to look for, null matches all values
+     * @param consumer receives the dashed names
+     */
+    public void forEachMatching(String filter, Consumer<String> consumer) {
+        for (int i = 0; i < names.length; i++) {
+            if (filter == null || names[i].contains(filter) || dashedNames[i].contains(filter)) {
+                consumer.accept(dashedNames[i]);
+            }
+        }
+    }
+
+    /**
+     * Tells if there are no values.
+     *
+     * @return true if the type is missing, not an enum or without constants
+     */
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    private static EnumValues load(ClassLoader cl, String type) {
+        try {
+            final Object[] constants = cl.loadClass(type).getEnumConstants();
+            if (constants == null || constants.length == 0) {
+                return NONE;
+            }
+            final String[] names = new String[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                names[i] = constants[i].toString().toLowerCase(Locale.ROOT);
+            }
+            return new EnumValues(names);
+        } catch (ClassNotFoundException | LinkageError ex) {
+            // type not available in project classpath, no completion possible
+            logger.log(FINE, "Cannot load {0} for enum values completion: {1}", new Object[]{type, ex.toString()});
+            return NONE;
+        }
+    }
+}
@@ -17,7 +17,6 @@ package com.github.alexfalappa.nbspringboot.projects.service.impl;
 
 import java.util.Map;
 
-import org.netbeans.api.java.classpath.ClassPath;
 import org.netbeans.spi.editor.completion.CompletionResultSet;
 import org.openide.filesystems.FileObject;
 import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
@@ -25,6 +24,7 @@ import org.springframework.boot.configurationmetadata.ConfigurationMetadataPrope
 import com.github.alexfalappa.nbspringboot.Utils;
 import com.github.alexfalappa.nbspringboot.cfgprops.completion.items.ValueCompletionItem;
 import com.github.alexfalappa.nbspringboot.projects.service.api.HintProvider;
+import com.github.alexfalappa.nbspringboot.projects.service.api.SpringBootService;
 
 /**
  * Implementation of {@link HintProvider} for 'handle-as' clauses.
@@ -33,12 +33,12 @@ import com.github.alexfalappa.nbspringboot.projects.service.api.HintProvider;
  */
 public class HandleAsHintProvider implements HintProvider {
 
-    private ClassPath cpExec = null;
+    private final SpringBootService sbs;
     private final FileObject resourcesFolder;
 
-    public HandleAsHintProvider(FileObject resourcesFolder, ClassPath cpExec) {
+    public HandleAsHintProvider(FileObject resourcesFolder, SpringBootService sbs) {
         this.resourcesFolder = resourcesFolder;
-        this.cpExec = cpExec;
+        this.sbs = sbs;
     }
 
     @Override
@@ -79,7 +79,7 @@ public class HandleAsHintProvider implements HintProvider {
                 break;
             default:
                 // try to interpret the targetType as an enum
-                Utils.completeEnum(cpExec, targetType, filter, hint -> {
+                Utils.completeEnum(sbs.getManagedClassLoader(), targetType, filter, hint -> {
                     completionResultSet.addItem(new ValueCompletionItem(hint, dotOffset, caretOffset));
                 });
         }
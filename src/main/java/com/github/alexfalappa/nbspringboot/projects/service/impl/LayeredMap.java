@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map made of a large base map and a small overlay of changes to it.
+ * <p>
+ * Updates copy only the overlay and share the base, so that each metadata snapshot derives its maps from the previous one in
+ * time proportional to the changed entries. When the overlay grows past a fraction of the base the two are merged into a new
+ * base. Null values are not allowed, in the overlay they mark removed keys.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Alessandro Falappa
+ */
+final class LayeredMap<K, V> extends AbstractMap<K, V> {
+
+    // overlay sizes up to which merging is never worth it
+    private static final int MIN_MERGE = 256;
+    private static final LayeredMap<?, ?> EMPTY = new LayeredMap<>(Collections.emptyMap(), Collections.emptyMap(), 0);
+    // neither map is modified once the layered map is built
+    private final Map<K, V> base;
+    private final Map<K, V> overlay;
+    private final int size;
+    private Set<Map.Entry<K, V>> entrySet;
+
+    private LayeredMap(Map<K, V> base, Map<K, V> overlay, int size) {
+        this.base = base;
+        this.overlay = overlay;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> LayeredMap<K, V> empty() {
+        return (LayeredMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Builds a new map applying changes to this one.
+     *
+     * @param changes the new values by key, null values remove keys
+     * @return the updated map, this map if there are no changes
+     */
+    LayeredMap<K, V> patch(Map<K, V> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        final Map<K, V> newOverlay = new HashMap<>(overlay);
+        int newSize = size;
+        for (Map.Entry<K, V> change : changes.entrySet()) {
+            final boolean present = get(change.getKey()) != null;
+            if (change.getValue() == null) {
+                if (present) {
+                    newSize--;
+                }
+                if (base.containsKey(change.getKey())) {
+                    newOverlay.put(change.getKey(), null);
+                } else {
+                    newOverlay.remove(change.getKey());
+                }
+            } else {
+                if (!present) {
+                    newSize++;
+                }
+                newOverlay.put(change.getKey(), change.getValue());
+            }
+        }
+        if (newOverlay.size() > MIN_MERGE && newOverlay.size() > base.size() / 8) {
+            final Map<K, V> newBase = new HashMap<>(base);
+            for (Map.Entry<K, V> entry : newOverlay.entrySet()) {
+                if (entry.getValue() == null) {
+                    newBase.remove(entry.getKey());
+                } else {
+                    newBase.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return new LayeredMap<>(newBase, Collections.emptyMap(), newSize);
+        }
+        return new LayeredMap<>(base, newOverlay, newSize);
+    }
+
+    /**
+     * Tells if this map was derived from another without copying its base.
+     *
+     * @param other the other map
+     * @return true if the two maps have the same base
+     */
+    boolean sharesBase(LayeredMap<?, ?> other) {
+        return base == other.base;
+    }
+
+    @Override
+    public V get(Object key) {
+        final V ret = overlay.get(key);
+        if (ret != null || overlay.containsKey(key)) {
+            return ret;
+        }
+        return base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    // base entries not overridden, then overlay entries not removed
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private Iterator<Map.Entry<K, V>> current = base.entrySet().iterator();
+        private boolean inOverlay = false;
+        private Map.Entry<K, V> next = advance();
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final Map.Entry<K, V> ret = next;
+            next = advance();
+            return ret;
+        }
+
+        private Map.Entry<K, V> advance() {
+            while (true) {
+                while (current.hasNext()) {
+                    final Map.Entry<K, V> entry = current.next();
+                    if (inOverlay ? entry.getValue() != null : !overlay.containsKey(entry.getKey())) {
+                        return new SimpleImmutableEntry<>(entry);
+                    }
+                }
+                if (inOverlay) {
+                    return null;
+                }
+                current = overlay.entrySet().iterator();
+                inOverlay = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.configurationmetadata.Deprecation;
+import org.springframework.boot.configurationmetadata.Hints;
+import org.springframework.boot.configurationmetadata.ValueHint;
+import org.springframework.boot.configurationmetadata.ValueProvider;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Single pass streaming reader of Spring Boot configuration metadata JSON files.
+ * <p>
+ * Produces {@link CompactMetadata} without building a DOM of the file: description string literals and hint objects are
+ * copied as raw bytes and decoded only when requested, e.g. by the documentation popup. Groups are skipped. Properties, hints
+ * and deprecations otherwise follow the semantics of the Spring Boot {@code ConfigurationMetadataRepositoryJsonBuilder}.
+ *
+ * @author Alessandro Falappa
+ */
+final class MetadataJsonReader {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final String KEYS_SUFFIX = ".keys";
+    private static final String VALUES_SUFFIX = ".values";
+
+    private MetadataJsonReader() {
+        // prevent instantiation
+    }
+
+    /**
+     * Reads a configuration metadata JSON file.
+     *
+     * @param json the UTF-8 encoded file content
+     * @return the compact metadata of the file
+     * @throws IOException if the content is not valid metadata JSON
+     */
+    static CompactMetadata read(byte[] json) throws IOException {
+        final CompactMetadata.Builder builder = new CompactMetadata.Builder();
+        final List<HintSlice> hints = new ArrayList<>();
+        try (JsonParser jp = FACTORY.createParser(json)) {
+            expect(jp, jp.nextToken(), JsonToken.START_OBJECT);
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = jp.getCurrentName();
+                final JsonToken tok = jp.nextToken();
+                if ("properties".equals(field) && tok == JsonToken.START_ARRAY) {
+                    while (jp.nextToken() == JsonToken.START_OBJECT) {
+                        readProperty(jp, json, builder);
+                    }
+                } else if ("hints".equals(field) && tok == JsonToken.START_ARRAY) {
+                    while (jp.nextToken() == JsonToken.START_OBJECT) {
+                        hints.add(readHintSlice(jp));
+                    }
+                } else {
+                    jp.skipChildren();
+                }
+            }
+        }
+        attachHints(json, hints, builder);
+        return builder.build();
+    }
+
+    /**
+     * Decodes a JSON string literal.
+     *
+     * @param bytes buffer containing the literal
+     * @param offset offset of the opening quote
+     * @param length length in bytes of the literal, quotes included
+     * @return the decoded string
+     */
+    static String decodeString(byte[] bytes, int offset, int length) {
+        try (JsonParser jp = FACTORY.createParser(bytes, offset, length)) {
+            jp.nextToken();
+            return jp.getText();
+        } catch (IOException ex) {
+            // slices are validated when read
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Decodes hints stored as a JSON array of two arrays, respectively of key and value hint objects.
+     *
+     * @param bytes buffer containing the hints
+     * @param offset offset of the hints
+     * @param length length in bytes of the hints
+     * @return the decoded hints
+     */
+    static Hints decodeHints(byte[] bytes, int offset, int length) {
+        final Hints ret = new Hints();
+        try (JsonParser jp = FACTORY.createParser(bytes, offset, length)) {
+            jp.nextToken();
+            jp.nextToken();
+            while (jp.nextToken() == JsonToken.START_OBJECT) {
+                readHint(jp, ret.getKeyHints(), ret.getKeyProviders());
+            }
+            jp.nextToken();
+            while (jp.nextToken() == JsonToken.START_OBJECT) {
+                readHint(jp, ret.getValueHints(), ret.getValueProviders());
+            }
+        } catch (IOException ex) {
+            // slices are validated when read
+            throw new IllegalStateException(ex);
+        }
+        return ret;
+    }
+
+    private static void readProperty(JsonParser jp, byte[] json, CompactMetadata.Builder builder) throws IOException {
+        String name = null;
+        String type = null;
+        int descOffset = -1;
+        int descLength = 0;
+        Object defaultValue = null;
+        Deprecation deprecation = null;
+        boolean deprecated = false;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            final JsonToken tok = jp.nextToken();
+            switch (field) {
+                case "name":
+                    name = jp.getValueAsString();
+                    break;
+                case "type":
+                    type = jp.getValueAsString();
+                    break;
+                case "description":
+                    if (tok == JsonToken.VALUE_STRING) {
+                        // keep the raw literal, the parser skips it without decoding
+                        descOffset = (int) jp.getTokenLocation().getByteOffset();
+                        descLength = literalEnd(json, descOffset) - descOffset;
+                    }
+                    break;
+                case "defaultValue":
+                    defaultValue = readValue(jp);
+                    break;
+                case "deprecated":
+                    deprecated = tok == JsonToken.VALUE_TRUE;
+                    break;
+                case "deprecation":
+                    if (tok == JsonToken.START_OBJECT) {
+                        deprecation = readDeprecation(jp);
+                    } else {
+                        jp.skipChildren();
+                    }
+                    break;
+                default:
+                    jp.skipChildren();
+            }
+        }
+        if (name == null) {
+            throw new IOException("Property without name at " + jp.getCurrentLocation());
+        }
+        if (deprecation == null && deprecated) {
+            deprecation = new Deprecation();
+        }
+        builder.property(name, type, json, descOffset, descLength, defaultValue, deprecation);
+    }
+
+    private static Deprecation readDeprecation(JsonParser jp) throws IOException {
+        final Deprecation ret = new Deprecation();
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            jp.nextToken();
+            switch (field) {
+                case "level":
+                    ret.setLevel("error".equalsIgnoreCase(jp.getValueAsString()) ? Deprecation.Level.ERROR
+                            : Deprecation.Level.WARNING);
+                    break;
+                case "reason":
+                    ret.setReason(jp.getValueAsString());
+                    ret.setShortReason(CompactMetadata.firstSentence(ret.getReason()));
+                    break;
+                case "replacement":
+                    ret.setReplacement(jp.getValueAsString());
+                    break;
+                default:
+                    jp.skipChildren();
+            }
+        }
+        return ret;
+    }
+
+    // records name and bytes of a hint object, the parser is on its opening brace
+    private static HintSlice readHintSlice(JsonParser jp) throws IOException {
+        final int start = (int) jp.getTokenLocation().getByteOffset();
+        String name = null;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            jp.nextToken();
+            if ("name".equals(field)) {
+                name = jp.getValueAsString();
+            } else {
+                jp.skipChildren();
+            }
+        }
+        if (name == null) {
+            throw new IOException("Hint without name at " + jp.getCurrentLocation());
+        }
+        return new HintSlice(name, start, (int) jp.getCurrentLocation().getByteOffset());
+    }
+
+    // attach hints to properties as the Spring Boot repository builder does, preserving the file order
+    private static void attachHints(byte[] json, List<HintSlice> hints, CompactMetadata.Builder builder) {
+        final Map<String, List<HintSlice>> keyHints = new LinkedHashMap<>();
+        final Map<String, List<HintSlice>> valueHints = new LinkedHashMap<>();
+        for (HintSlice hint : hints) {
+            String id = hint.name;
+            if (builder.hasProperty(id)) {
+                valueHints.computeIfAbsent(id, k -> new ArrayList<>()).add(hint);
+                keyHints.computeIfAbsent(id, k -> new ArrayList<>());
+            } else if (id.endsWith(KEYS_SUFFIX)) {
+                id = id.substring(0, id.length() - KEYS_SUFFIX.length());
+                if (builder.hasProperty(id)) {
+                    keyHints.computeIfAbsent(id, k -> new ArrayList<>()).add(hint);
+                    valueHints.computeIfAbsent(id, k -> new ArrayList<>());
+                }
+            } else if (id.endsWith(VALUES_SUFFIX)) {
+                id = id.substring(0, id.length() - VALUES_SUFFIX.length());
+                if (builder.hasProperty(id)) {
+                    valueHints.computeIfAbsent(id, k -> new ArrayList<>()).add(hint);
+                    keyHints.computeIfAbsent(id, k -> new ArrayList<>());
+                }
+            }
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (Map.Entry<String, List<HintSlice>> entry : keyHints.entrySet()) {
+            baos.reset();
+            baos.write('[');
+            writeSlices(json, entry.getValue(), baos);
+            baos.write(',');
+            writeSlices(json, valueHints.get(entry.getKey()), baos);
+            baos.write(']');
+            builder.hints(entry.getKey(), baos.toByteArray());
+        }
+    }
+
+    private static void writeSlices(byte[] json, List<HintSlice> slices, ByteArrayOutputStream baos) {
+        baos.write('[');
+        for (int i = 0; i < slices.size(); i++) {
+            if (i > 0) {
+                baos.write(',');
+            }
+            final HintSlice slice = slices.get(i);
+            baos.write(json, slice.start, slice.end - slice.start);
+        }
+        baos.write(']');
+    }
+
+    private static void readHint(JsonParser jp, List<ValueHint> values, List<ValueProvider> providers) throws IOException {
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            final JsonToken tok = jp.nextToken();
+            if ("values".equals(field) && tok == JsonToken.START_ARRAY) {
+                while (jp.nextToken() == JsonToken.START_OBJECT) {
+                    values.add(readValueHint(jp));
+                }
+            } else if ("providers".equals(field) && tok == JsonToken.START_ARRAY) {
+                while (jp.nextToken() == JsonToken.START_OBJECT) {
+                    providers.add(readValueProvider(jp));
+                }
+            } else {
+                jp.skipChildren();
+            }
+        }
+    }
+
+    private static ValueHint readValueHint(JsonParser jp) throws IOException {
+        final ValueHint ret = new ValueHint();
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            jp.nextToken();
+            switch (field) {
+                case "value":
+                    ret.setValue(readValue(jp));
+                    break;
+                case "description":
+                    ret.setDescription(jp.getValueAsString());
+                    ret.setShortDescription(CompactMetadata.firstSentence(ret.getDescription()));
+                    break;
+                default:
+                    jp.skipChildren();
+            }
+        }
+        return ret;
+    }
+
+    private static ValueProvider readValueProvider(JsonParser jp) throws IOException {
+        final ValueProvider ret = new ValueProvider();
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            final JsonToken tok = jp.nextToken();
+            if ("name".equals(field)) {
+                ret.setName(jp.getValueAsString());
+            } else if ("parameters".equals(field) && tok == JsonToken.START_OBJECT) {
+                while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                    final String param = jp.getCurrentName();
+                    jp.nextToken();
+                    ret.getParameters().put(param, readValue(jp));
+                }
+            } else {
+                jp.skipChildren();
+            }
+        }
+        return ret;
+    }
+
+    // materialize the value the parser is on: scalars, arrays as Object[] and objects as maps
+    private static Object readValue(JsonParser jp) throws IOException {
+        switch (jp.currentToken()) {
+            case VALUE_STRING:
+                return jp.getText();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return jp.getNumberValue();
+            case START_ARRAY:
+                final List<Object> items = new ArrayList<>();
+                while (jp.nextToken() != JsonToken.END_ARRAY) {
+                    items.add(readValue(jp));
+                }
+                return items.toArray();
+            case START_OBJECT:
+                final Map<String, Object> map = new LinkedHashMap<>();
+                while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                    final String key = jp.getCurrentName();
+                    jp.nextToken();
+                    map.put(key, readValue(jp));
+                }
+                return map;
+            default:
+                return null;
+        }
+    }
+
+    // offset past the closing quote of the string literal starting at the given offset
+    private static int literalEnd(byte[] json, int start) throws IOException {
+        for (int i = start + 1; i < json.length; i++) {
+            if (json[i] == '\\') {
+                i++;
+            } else if (json[i] == '"') {
+                return i + 1;
+            }
+        }
+        throw new IOException("Unterminated string at offset " + start);
+    }
+
+    private static void expect(JsonParser jp, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " at " + jp.getCurrentLocation());
+        }
+    }
+
+    // a top level hint object in the source bytes
+    private static final class HintSlice {
+
+        private final String name;
+        private final int start;
+        private final int end;
+
+        HintSlice(String name, int start, int end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
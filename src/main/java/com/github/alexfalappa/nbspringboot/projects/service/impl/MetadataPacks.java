@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.openide.modules.Places;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.INFO;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Precompiled configuration metadata of the Spring Boot jars of a given Boot release.
+ * <p>
+ * A pack holds the {@link CompactMetadata} of each Spring Boot jar, in classpath order, encoded as in the
+ * {@link ConfigMetadataIndex}. Packs are looked up first in the IDE cache folder, where they are written after the classpath of
+ * a project using that Boot release has been indexed, then among the module resources. They let completion work on projects
+ * whose dependencies are not yet resolved.
+ *
+ * @author Alessandro Falappa
+ */
+final class MetadataPacks {
+
+    private static final Logger logger = Logger.getLogger(MetadataPacks.class.getName());
+    private static final int MAGIC = 0x4E42_4350;
+    private static final String PACKS_DIR = "nb-springboot/packs/";
+    private static final String BUNDLED_PACKS = "/com/github/alexfalappa/nbspringboot/projects/service/impl/packs/";
+    private static final String BOOT_GROUP_PATH = "/org/springframework/boot/";
+
+    private MetadataPacks() {
+        // prevent instantiation
+    }
+
+    /**
+     * Tells if a jar belongs to the Spring Boot distribution, judging from its path in the local Maven repository.
+     *
+     * @param jarPath the jar path
+     * @return true if the jar is in the Spring Boot group
+     */
+    static boolean isBootJar(String jarPath) {
+        // backslashes never occur in Maven coordinates, normalize them whatever the platform the path comes from
+        return jarPath.replace('\\', '/').contains(BOOT_GROUP_PATH);
+    }
+
+    /**
+     * Tells if a pack for the given Boot release is in the cache folder.
+     *
+     * @param bootVersion the Spring Boot version
+     * @return true if cached
+     */
+    static boolean isCached(String bootVersion) {
+        return Files.isRegularFile(cachePath(bootVersion));
+    }
+
+    /**
+     * Loads the pack of a Boot release, merging its jars: the first jar defining a property wins.
+     *
+     * @param bootVersion the Spring Boot version
+     * @return an unmodifiable map of properties keyed by id or null if no pack is available
+     */
+    static Map<String, ConfigurationMetadataProperty> load(String bootVersion) {
+        return load(bootVersion, cachePath(bootVersion));
+    }
+
+    // load from the given cached pack, falling back to the bundled one
+    static Map<String, ConfigurationMetadataProperty> load(String bootVersion, Path cached) {
+        try (InputStream is = Files.isRegularFile(cached) ? Files.newInputStream(cached)
+                : MetadataPacks.class.getResourceAsStream(BUNDLED_PACKS + fileName(bootVersion))) {
+            if (is == null) {
+                return null;
+            }
+            final DataInputStream dis = new DataInputStream(new BufferedInputStream(is));
+            if (dis.readInt() != MAGIC || dis.readInt() != ConfigMetadataIndex.FORMAT_VERSION) {
+                logger.log(INFO, "Ignoring outdated metadata pack for Spring Boot {0}", bootVersion);
+                return null;
+            }
+            final Map<String, ConfigurationMetadataProperty> ret = new HashMap<>();
+            final int count = dis.readInt();
+            for (int i = 0; i < count; i++) {
+                CompactMetadata.readFrom(dis).properties().forEach(ret::putIfAbsent);
+            }
+            logger.log(FINE, "Loaded metadata pack for Spring Boot {0}", bootVersion);
+            return Collections.unmodifiableMap(ret);
+        } catch (IOException | RuntimeException ex) {
+            logger.log(WARNING, "Cannot read metadata pack for Spring Boot {0}: {1}", new Object[]{bootVersion, ex.toString()});
+            return null;
+        }
+    }
+
+    /**
+     * Writes the pack of a Boot release to the cache folder, replacing any previous one.
+     *
+     * @param bootVersion the Spring Boot version
+     * @param jars metadata of the Spring Boot jars in classpath order
+     */
+    static void store(String bootVersion, List<CompactMetadata> jars) {
+        store(bootVersion, jars, cachePath(bootVersion));
+    }
+
+    // write the pack to the given path
+    static void store(String bootVersion, List<CompactMetadata> jars, Path packPath) {
+        final Path tmpPath = packPath.resolveSibling(packPath.getFileName() + ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmpPath);
+                    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os))) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(ConfigMetadataIndex.FORMAT_VERSION);
+                dos.writeInt(jars.size());
+                for (CompactMetadata jar : jars) {
+                    jar.writeTo(dos);
+                }
+            }
+            Files.move(tmpPath, packPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.log(INFO, "Saved metadata pack for Spring Boot {0} with {1} jars", new Object[]{bootVersion, jars.size()});
+        } catch (IOException ex) {
+            logger.log(WARNING, "Cannot save metadata pack for Spring Boot {0}: {1}", new Object[]{bootVersion, ex.toString()});
+        }
+    }
+
+    private static Path cachePath(String bootVersion) {
+        return Places.getCacheSubfile(PACKS_DIR + fileName(bootVersion)).toPath();
+    }
+
+    // versions are used in file names, keep only safe characters
+    private static String fileName(String bootVersion) {
+        return bootVersion.replaceAll("[^A-Za-z0-9._-]", "_") + ".pack";
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Logger;
+
+import org.openide.filesystems.FileObject;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+import static java.util.logging.Level.FINE;
+
+/**
+ * IDE wide registry of the configuration properties found in classpath jars.
+ * <p>
+ * Jars are identified by path, size and last modification time. Projects having the same jar in classpath share a single
+ * immutable map of its properties, loaded once. Entries are reference counted and dropped when the last project using them
+ * releases them, so that memory scales with the number of distinct jars rather than with the number of open projects.
+ * <p>
+ * Safe for concurrent use, loading happens outside of locks.
+ *
+ * @author Alessandro Falappa
+ */
+final class MetadataRegistry {
+
+    private static final Logger logger = Logger.getLogger(MetadataRegistry.class.getName());
+    private static final MetadataRegistry INSTANCE = new MetadataRegistry();
+    private final Map<String, Shared> entries = new HashMap<>();
+
+    private MetadataRegistry() {
+    }
+
+    /**
+     * Gets the IDE wide registry instance.
+     *
+     * @return the shared registry
+     */
+    static MetadataRegistry getDefault() {
+        return INSTANCE;
+    }
+
+    /**
+     * Computes the identity of a jar in the registry.
+     *
+     * @param archiveFo the jar file object
+     * @return the registry key
+     */
+    static String keyOf(FileObject archiveFo) {
+        return archiveFo.getPath() + '|' + archiveFo.getSize() + '|' + archiveFo.lastModified().getTime();
+    }
+
+    /**
+     * Acquires a reference to the properties of a jar, loading them if no other project holds them.
+     * <p>
+     * Concurrent acquirers of the same jar wait for a single load. Each successful call must be paired with a call to
+     * {@link #release(String)}.
+     *
+     * @param key the jar identity as returned by {@link #keyOf(FileObject)}
+     * @param loader loads the jar properties when needed
+     * @return an unmodifiable map of properties keyed by id
+     * @throws IOException if loading failed
+     * @throws InterruptedException if interrupted while waiting for loading by another thread
+     */
+    Map<String, ConfigurationMetadataProperty> acquire(String key, Callable<Map<String, ConfigurationMetadataProperty>> loader)
+            throws IOException, InterruptedException {
+        final Shared entry;
+        final boolean owner;
+        synchronized (this) {
+            Shared existing = entries.get(key);
+            owner = existing == null;
+            entry = owner ? new Shared(loader) : existing;
+            if (owner) {
+                entries.put(key, entry);
+            }
+            entry.refCount++;
+        }
+        if (owner) {
+            MetadataStats.getDefault().registryMisses.increment();
+            entry.load.run();
+        } else {
+            MetadataStats.getDefault().registryHits.increment();
+            logger.log(FINE, "Sharing configuration metadata of {0}", key);
+        }
+        try {
+            return entry.load.get();
+        } catch (InterruptedException ex) {
+            release(key, entry, false);
+            throw ex;
+        } catch (ExecutionException ex) {
+            // failed loads are dropped at once so that later acquirers retry
+            release(key, entry, true);
+            final Throwable cause = ex.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * Releases a reference previously acquired with {@link #acquire(String, Callable)}.
+     *
+     * @param key the jar identity
+     */
+    void release(String key) {
+        release(key, null, false);
+    }
+
+    /**
+     * Number of distinct jars currently held.
+     *
+     * @return the entries count
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void release(String key, Shared expected, boolean drop) {
+        Shared entry = entries.get(key);
+        if (entry == null || (expected != null && entry != expected)) {
+            return;
+        }
+        if (--entry.refCount <= 0 || drop) {
+            entries.remove(key);
+            logger.log(FINE, "Dropped configuration metadata of {0}", key);
+        }
+    }
+
+    // properties of a jar shared among projects
+    private static final class Shared {
+
+        private final FutureTask<Map<String, ConfigurationMetadataProperty>> load;
+        private int refCount;
+
+        Shared(Callable<Map<String, ConfigurationMetadataProperty>> loader) {
+            this.load = new FutureTask<>(() -> Collections.unmodifiableMap(loader.call()));
+        }
+    }
+}
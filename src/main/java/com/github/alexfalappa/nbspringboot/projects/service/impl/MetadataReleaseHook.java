@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import org.netbeans.api.project.Project;
+import org.netbeans.modules.maven.api.NbMavenProject;
+import org.netbeans.spi.project.ProjectServiceProvider;
+import org.netbeans.spi.project.ui.ProjectOpenedHook;
+
+import com.github.alexfalappa.nbspringboot.projects.service.api.SpringBootService;
+
+/**
+ * Releases the configuration metadata held by the {@link SpringBootServiceImpl} of a project when it is closed.
+ * <p>
+ * Lets the IDE wide {@link MetadataRegistry} drop jars no longer used by any open project.
+ *
+ * @author Alessandro Falappa
+ */
+@ProjectServiceProvider(
+        service = ProjectOpenedHook.class,
+        projectType = {
+            "org-netbeans-modules-maven/" + NbMavenProject.TYPE_JAR,
+            "org-netbeans-modules-maven/" + NbMavenProject.TYPE_WAR
+        }
+)
+public class MetadataReleaseHook extends ProjectOpenedHook {
+
+    private final Project project;
+
+    public MetadataReleaseHook(Project project) {
+        this.project = project;
+    }
+
+    @Override
+    protected void projectOpened() {
+        // metadata is built lazily by the service
+    }
+
+    @Override
+    protected void projectClosed() {
+        SpringBootService sbs = project.getLookup().lookup(SpringBootService.class);
+        if (sbs instanceof SpringBootServiceImpl) {
+            ((SpringBootServiceImpl) sbs).release();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+import com.github.alexfalappa.nbspringboot.Utils;
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyNameIndex;
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyType;
+
+/**
+ * Immutable state of a {@link SpringBootServiceImpl}: merged configuration properties and structures indexing them.
+ * <p>
+ * A new snapshot is derived on each refresh from the previous one and then published with a single volatile write. Readers on
+ * any thread thus never lock nor see partially updated state. Maps and the map property trie share with the previous snapshot
+ * all the entries not affected by the refresh, so that deriving costs in proportion to the changed properties. The name index
+ * is built on the first query after a change.
+ *
+ * @author Alessandro Falappa
+ */
+final class MetadataSnapshot {
+
+    static final MetadataSnapshot EMPTY = new MetadataSnapshot(LayeredMap.empty(), LayeredMap.empty(), LayeredMap.empty(),
+            LayeredMap.empty(), new PrefixTrie<>(), PropertyNameIndex.EMPTY);
+    private static final Comparator<ConfigurationMetadataProperty> BY_ID =
+            Comparator.comparing(ConfigurationMetadataProperty::getId);
+    private final LayeredMap<String, ConfigurationMetadataProperty> properties;
+    // same properties grouped by canonical name, to resolve relaxed spellings, groups are sorted by id
+    private final LayeredMap<String, List<ConfigurationMetadataProperty>> canonicalProperties;
+    private final LayeredMap<String, ConfigurationMetadataProperty> collectionProperties;
+    private final LayeredMap<String, ConfigurationMetadataProperty> mapProperties;
+    // map properties keyed by canonical name, to resolve map keys
+    private final PrefixTrie<ConfigurationMetadataProperty> mapPropertiesTrie;
+    private volatile PropertyNameIndex nameIndex;
+
+    private MetadataSnapshot(LayeredMap<String, ConfigurationMetadataProperty> properties,
+            LayeredMap<String, List<ConfigurationMetadataProperty>> canonicalProperties,
+            LayeredMap<String, ConfigurationMetadataProperty> collectionProperties,
+            LayeredMap<String, ConfigurationMetadataProperty> mapProperties,
+            PrefixTrie<ConfigurationMetadataProperty> mapPropertiesTrie, PropertyNameIndex nameIndex) {
+        this.properties = properties;
+        this.canonicalProperties = canonicalProperties;
+        this.collectionProperties = collectionProperties;
+        this.mapProperties = mapProperties;
+        this.mapPropertiesTrie = mapPropertiesTrie;
+        this.nameIndex = nameIndex;
+    }
+
+    /**
+     * Builds a new snapshot updating the given properties.
+     * <p>
+     * This snapshot is returned when no property is affected.
+     *
+     * @param affected names of the properties to update
+     * @param resolver gives the current metadata of a property, null if the property no longer exists
+     * @return the new snapshot
+     */
+    MetadataSnapshot patch(Set<String> affected, Function<String, ConfigurationMetadataProperty> resolver) {
+        if (affected.isEmpty()) {
+            return this;
+        }
+        final Map<String, ConfigurationMetadataProperty> propChanges = new HashMap<>();
+        final Map<String, List<ConfigurationMetadataProperty>> canonicalChanges = new HashMap<>();
+        final Map<String, ConfigurationMetadataProperty> collectionChanges = new HashMap<>();
+        final Map<String, ConfigurationMetadataProperty> mapChanges = new HashMap<>();
+        PrefixTrie<ConfigurationMetadataProperty> newTrie = mapPropertiesTrie;
+        for (String name : affected) {
+            final ConfigurationMetadataProperty prop = resolver.apply(name);
+            final String canonicalName = Utils.canonicalPropertyName(name);
+            final PropertyType type = PropertyType.of(prop != null ? prop.getType() : null);
+            propChanges.put(name, prop);
+            collectionChanges.put(name, type.getContainer() == PropertyType.Container.COLLECTION ? prop : null);
+            mapChanges.put(name, type.isMap() ? prop : null);
+            // replace the property in the group of its canonical name, other relaxed spellings stay resolvable
+            final List<ConfigurationMetadataProperty> group = canonicalChanges.containsKey(canonicalName)
+                    ? canonicalChanges.get(canonicalName) : canonicalProperties.get(canonicalName);
+            final List<ConfigurationMetadataProperty> newGroup = new ArrayList<>(group != null ? group.size() + 1 : 1);
+            if (group != null) {
+                for (ConfigurationMetadataProperty other : group) {
+                    if (!name.equals(other.getId())) {
+                        newGroup.add(other);
+                    }
+                }
+            }
+            if (prop != null) {
+                newGroup.add(prop);
+                newGroup.sort(BY_ID);
+            }
+            canonicalChanges.put(canonicalName, newGroup.isEmpty() ? null : Collections.unmodifiableList(newGroup));
+        }
+        // map keys resolve to the first map property of each changed group
+        for (Map.Entry<String, List<ConfigurationMetadataProperty>> change : canonicalChanges.entrySet()) {
+            final ConfigurationMetadataProperty mapProp = firstMap(change.getValue());
+            newTrie = mapProp != null ? newTrie.put(change.getKey(), mapProp) : newTrie.remove(change.getKey());
+        }
+        return new MetadataSnapshot(properties.patch(propChanges), canonicalProperties.patch(canonicalChanges),
+                collectionProperties.patch(collectionChanges), mapProperties.patch(mapChanges), newTrie, null);
+    }
+
+    Map<String, ConfigurationMetadataProperty> getProperties() {
+        return properties;
+    }
+
+    Set<String> getCollectionProperties() {
+        return collectionProperties.keySet();
+    }
+
+    Set<String> getMapProperties() {
+        return mapProperties.keySet();
+    }
+
+    /**
+     * Gets the index of property names, building it on first request.
+     *
+     * @return the name index
+     */
+    PropertyNameIndex getNameIndex() {
+        PropertyNameIndex ret = nameIndex;
+        if (ret == null) {
+            synchronized (this) {
+                ret = nameIndex;
+                if (ret == null) {
+                    ret = new PropertyNameIndex(properties.values());
+                    nameIndex = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    // tells if the name index has been built, for tests
+    boolean isNameIndexBuilt() {
+        return nameIndex != null;
+    }
+
+    /**
+     * Finds a property by any of its relaxed spellings, also interpreting array and map notations.
+     *
+     * @param propertyName the property name
+     * @return the property metadata or null if not found
+     */
+    ConfigurationMetadataProperty resolve(String propertyName) {
+        ConfigurationMetadataProperty ret = lookupCanonical(Utils.canonicalPropertyName(propertyName));
+        if (ret == null && propertyName.indexOf('.') < 0 && propertyName.indexOf('_') >= 0) {
+            // environment variable style name, underscores separate name segments
+            ret = lookupCanonical(Utils.canonicalPropertyName(propertyName.replace('_', '.')));
+        }
+        return ret;
+    }
+
+    /**
+     * Finds the map property the given name is a key of.
+     *
+     * @param propertyName the property name
+     * @return the map property metadata or null if not found
+     */
+    ConfigurationMetadataProperty findMapProperty(String propertyName) {
+        return mapPropertiesTrie.longestPrefixOf(Utils.canonicalPropertyName(propertyName));
+    }
+
+    private static ConfigurationMetadataProperty firstMap(List<ConfigurationMetadataProperty> group) {
+        if (group != null) {
+            for (ConfigurationMetadataProperty prop : group) {
+                if (PropertyType.of(prop.getType()).isMap()) {
+                    return prop;
+                }
+            }
+        }
+        return null;
+    }
+
+    // first property with the given canonical name
+    private ConfigurationMetadataProperty canonical(String name) {
+        final List<ConfigurationMetadataProperty> group = canonicalProperties.get(name);
+        return group != null ? group.get(0) : null;
+    }
+
+    // resolve a canonical property name, also interpreting array and map notations
+    private ConfigurationMetadataProperty lookupCanonical(String name) {
+        ConfigurationMetadataProperty ret = canonical(name);
+        if (ret != null) {
+            return ret;
+        }
+        // try to interpret array notation (strip '[index]' from name)
+        final int openIdx = name.lastIndexOf('[');
+        if (openIdx > 0 && name.endsWith("]") && openIdx < name.length() - 2) {
+            boolean digits = true;
+            for (int i = openIdx + 1; i < name.length() - 1 && digits; i++) {
+                digits = Character.isDigit(name.charAt(i));
+            }
+            if (digits) {
+                return canonical(name.substring(0, openIdx));
+            }
+        }
+        // try to interpret map notation (see if name starts with a known map property followed by the key)
+        return mapPropertiesTrie.longestPrefixOf(name);
+    }
+}
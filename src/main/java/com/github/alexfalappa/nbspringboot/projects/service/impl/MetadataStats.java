@@ -0,0 +1,325 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static java.util.logging.Level.FINE;
+
+/**
+ * IDE wide statistics of the configuration metadata services.
+ * <p>
+ * Collects refresh timings split by phase, sizes of the indexed metadata, cache hit ratios and latency histograms of property
+ * lookups. Recording is lock free and cheap enough for the completion and highlighting paths. Published as a JMX MBean named
+ * {@value #OBJECT_NAME} and shown by the Spring Boot metadata statistics window.
+ *
+ * @author Alessandro Falappa
+ */
+public final class MetadataStats implements MetadataStatsMBean {
+
+    static final String OBJECT_NAME = "com.github.alexfalappa.nbspringboot:type=MetadataStats";
+    private static final Logger logger = Logger.getLogger(MetadataStats.class.getName());
+    private static final MetadataStats INSTANCE = new MetadataStats();
+    final Timer refresh = new Timer();
+    final Timer scan = new Timer();
+    final Timer parse = new Timer();
+    final Timer merge = new Timer();
+    final LongAdder refreshCancelled = new LongAdder();
+    final LongAdder ownMetadataUpdates = new LongAdder();
+    final LongAdder jsonFilesParsed = new LongAdder();
+    final LongAdder bytesParsed = new LongAdder();
+    final LongAdder indexHits = new LongAdder();
+    final LongAdder indexMisses = new LongAdder();
+    final LongAdder registryHits = new LongAdder();
+    final LongAdder registryMisses = new LongAdder();
+    final Histogram propertyLookups = new Histogram();
+    final Histogram propertyQueries = new Histogram();
+    private final AtomicLong sources = new AtomicLong();
+    private final AtomicLong properties = new AtomicLong();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException | RuntimeException ex) {
+            logger.log(FINE, "Cannot register metadata statistics MBean: {0}", ex.toString());
+        }
+    }
+
+    private MetadataStats() {
+    }
+
+    /**
+     * Gets the IDE wide statistics instance.
+     *
+     * @return the shared statistics
+     */
+    public static MetadataStats getDefault() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the sizes of the metadata published by a refresh.
+     *
+     * @param sourceCount number of metadata sources
+     * @param propertyCount number of merged properties
+     */
+    void sizes(int sourceCount, int propertyCount) {
+        sources.set(sourceCount);
+        properties.set(propertyCount);
+    }
+
+    @Override
+    public long getRefreshCount() {
+        return refresh.count();
+    }
+
+    @Override
+    public long getRefreshCancelledCount() {
+        return refreshCancelled.sum();
+    }
+
+    @Override
+    public double getRefreshAvgMillis() {
+        return refresh.avgMillis();
+    }
+
+    @Override
+    public long getRefreshMaxMillis() {
+        return refresh.maxMillis();
+    }
+
+    @Override
+    public double getScanAvgMillis() {
+        return scan.avgMillis();
+    }
+
+    @Override
+    public double getParseAvgMillis() {
+        return parse.avgMillis();
+    }
+
+    @Override
+    public double getMergeAvgMillis() {
+        return merge.avgMillis();
+    }
+
+    @Override
+    public long getOwnMetadataUpdateCount() {
+        return ownMetadataUpdates.sum();
+    }
+
+    @Override
+    public long getSources() {
+        return sources.get();
+    }
+
+    @Override
+    public long getProperties() {
+        return properties.get();
+    }
+
+    @Override
+    public long getJsonFilesParsed() {
+        return jsonFilesParsed.sum();
+    }
+
+    @Override
+    public long getBytesParsed() {
+        return bytesParsed.sum();
+    }
+
+    @Override
+    public double getIndexHitRatio() {
+        return ratio(indexHits.sum(), indexMisses.sum());
+    }
+
+    @Override
+    public double getRegistryHitRatio() {
+        return ratio(registryHits.sum(), registryMisses.sum());
+    }
+
+    @Override
+    public long getPropertyLookupCount() {
+        return propertyLookups.count();
+    }
+
+    @Override
+    public long getPropertyLookupP50Micros() {
+        return propertyLookups.percentileMicros(50);
+    }
+
+    @Override
+    public long getPropertyLookupP99Micros() {
+        return propertyLookups.percentileMicros(99);
+    }
+
+    @Override
+    public long getPropertyQueryCount() {
+        return propertyQueries.count();
+    }
+
+    @Override
+    public long getPropertyQueryP50Micros() {
+        return propertyQueries.percentileMicros(50);
+    }
+
+    @Override
+    public long getPropertyQueryP99Micros() {
+        return propertyQueries.percentileMicros(99);
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        line(sb, "Refreshes", "%d (%d cancelled)", getRefreshCount(), getRefreshCancelledCount());
+        line(sb, "Refresh time", "avg %.1f ms, max %d ms", getRefreshAvgMillis(), getRefreshMaxMillis());
+        line(sb, "  classpath scan", "avg %.1f ms", getScanAvgMillis());
+        line(sb, "  parsing", "avg %.1f ms", getParseAvgMillis());
+        line(sb, "  merging", "avg %.1f ms", getMergeAvgMillis());
+        line(sb, "Project metadata updates", "%d", getOwnMetadataUpdateCount());
+        line(sb, "Sources / properties", "%d / %d", getSources(), getProperties());
+        line(sb, "JSON files parsed", "%d (%d KiB)", getJsonFilesParsed(), getBytesParsed() / 1024);
+        line(sb, "Index hit ratio", "%.1f%%", getIndexHitRatio() * 100);
+        line(sb, "Shared jars hit ratio", "%.1f%%", getRegistryHitRatio() * 100);
+        line(sb, "Property lookups", "%d (p50 %d us, p99 %d us)", getPropertyLookupCount(), getPropertyLookupP50Micros(),
+                getPropertyLookupP99Micros());
+        line(sb, "Property queries", "%d (p50 %d us, p99 %d us)", getPropertyQueryCount(), getPropertyQueryP50Micros(),
+                getPropertyQueryP99Micros());
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (Timer timer : new Timer[]{refresh, scan, parse, merge}) {
+            timer.reset();
+        }
+        for (LongAdder adder : new LongAdder[]{refreshCancelled, ownMetadataUpdates, jsonFilesParsed, bytesParsed, indexHits,
+            indexMisses, registryHits, registryMisses}) {
+            adder.reset();
+        }
+        propertyLookups.reset();
+        propertyQueries.reset();
+    }
+
+    private static double ratio(long hits, long misses) {
+        final long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private static void line(StringBuilder sb, String label, String format, Object... args) {
+        sb.append(String.format(Locale.ROOT, "%-26s", label + ':'))
+                .append(String.format(Locale.ROOT, format, args))
+                .append('\n');
+    }
+
+    /**
+     * Count, total and maximum of a timed operation.
+     */
+    static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double avgMillis() {
+            final long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / (n * 1e6);
+        }
+
+        long maxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+    }
+
+    /**
+     * Latency histogram with power of two microsecond buckets.
+     * <p>
+     * Bucket {@code i} counts latencies below {@code 2^i} microseconds, the last one all longer latencies.
+     */
+    static final class Histogram {
+
+        private static final int BUCKETS = 24;
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            final long micros = nanos / 1000;
+            final int idx = 64 - Long.numberOfLeadingZeros(micros);
+            buckets[Math.min(idx, BUCKETS - 1)].increment();
+        }
+
+        long count() {
+            long ret = 0;
+            for (LongAdder bucket : buckets) {
+                ret += bucket.sum();
+            }
+            return ret;
+        }
+
+        // upper bound of the bucket containing the given percentile
+        long percentileMicros(int percentile) {
+            final long total = count();
+            if (total == 0) {
+                return 0;
+            }
+            final long threshold = (total * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= threshold) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+    }
+}
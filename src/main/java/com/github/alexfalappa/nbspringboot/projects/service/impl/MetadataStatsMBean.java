@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+/**
+ * JMX management interface of {@link MetadataStats}.
+ * <p>
+ * Times are in milliseconds, latencies in microseconds. Counters accumulate over all projects since IDE start or last reset,
+ * sizes refer to the last completed refresh.
+ *
+ * @author Alessandro Falappa
+ */
+public interface MetadataStatsMBean {
+
+    long getRefreshCount();
+
+    long getRefreshCancelledCount();
+
+    double getRefreshAvgMillis();
+
+    long getRefreshMaxMillis();
+
+    double getScanAvgMillis();
+
+    double getParseAvgMillis();
+
+    double getMergeAvgMillis();
+
+    long getOwnMetadataUpdateCount();
+
+    long getSources();
+
+    long getProperties();
+
+    long getJsonFilesParsed();
+
+    long getBytesParsed();
+
+    double getIndexHitRatio();
+
+    double getRegistryHitRatio();
+
+    long getPropertyLookupCount();
+
+    long getPropertyLookupP50Micros();
+
+    long getPropertyLookupP99Micros();
+
+    long getPropertyQueryCount();
+
+    long getPropertyQueryP50Micros();
+
+    long getPropertyQueryP99Micros();
+
+    /**
+     * All statistics as human readable text.
+     *
+     * @return a multi line report
+     */
+    String getReport();
+
+    /**
+     * Zeroes all counters, timers and histograms.
+     */
+    void reset();
+}
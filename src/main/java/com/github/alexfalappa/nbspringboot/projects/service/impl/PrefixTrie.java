@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Trie over the dotted segments of property names supporting longest prefix match.
+ * <p>
+ * Used to find the map property a given name is a key of, e.g. {@code logging.level} for {@code logging.level.com.acme.foo},
+ * walking the name once regardless of the number of indexed names.
+ * <p>
+ * Immutable: updates return a new trie copying only the nodes along the updated name and sharing all the others, so that each
+ * metadata snapshot can derive its trie from the previous one in time proportional to the changed names.
+ *
+ * @param <V> the type of values associated to names
+ * @author Alessandro Falappa
+ */
+final class PrefixTrie<V> {
+
+    private final Node<V> root;
+
+    /**
+     * Creates an empty trie.
+     */
+    PrefixTrie() {
+        this(new Node<>(null, null));
+    }
+
+    private PrefixTrie(Node<V> root) {
+        this.root = root;
+    }
+
+    /**
+     * Associates a value to a dotted name, replacing any previous value.
+     *
+     * @param name the dotted name
+     * @param value the value
+     * @return the updated trie
+     */
+    PrefixTrie<V> put(String name, V value) {
+        return new PrefixTrie<>(put(root, name, 0, value));
+    }
+
+    /**
+     * Removes the value associated to a dotted name, if any.
+     *
+     * @param name the dotted name
+     * @return the updated trie, this trie if the name has no value
+     */
+    PrefixTrie<V> remove(String name) {
+        final Node<V> newRoot = remove(root, name, 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PrefixTrie<>(newRoot != null ? newRoot : new Node<>(null, null));
+    }
+
+    /**
+     * Finds the value of the longest indexed name that is a proper prefix of the given name.
+     * <p>
+     * The indexed name must be followed in the given name by a dot or an opening square bracket.
+     *
+     * @param name the name to look up
+     * @return the value or null if no indexed name is a prefix of the given one
+     */
+    V longestPrefixOf(String name) {
+        V ret = null;
+        Node<V> node = root;
+        int start = 0;
+        while (start < name.length()) {
+            int end = start;
+            while (end < name.length() && name.charAt(end) != '.' && name.charAt(end) != '[') {
+                end++;
+            }
+            node = node.child(name.substring(start, end));
+            if (node == null || end == name.length()) {
+                break;
+            }
+            if (node.value != null) {
+                ret = node.value;
+            }
+            if (name.charAt(end) == '[') {
+                break;
+            }
+            start = end + 1;
+        }
+        return ret;
+    }
+
+    // copy of node with the value set for the name segments from start
+    private static <V> Node<V> put(Node<V> node, String name, int start, V value) {
+        final int end = name.indexOf('.', start);
+        final String segment = name.substring(start, end < 0 ? name.length() : end);
+        final Node<V> child = node.child(segment);
+        final Node<V> newChild;
+        if (end < 0) {
+            newChild = new Node<>(child != null ? child.children : null, value);
+        } else {
+            newChild = put(child != null ? child : new Node<>(null, null), name, end + 1, value);
+        }
+        return node.withChild(segment, newChild);
+    }
+
+    // copy of node without the value for the name segments from start, the node itself if no value, null if left empty
+    private static <V> Node<V> remove(Node<V> node, String name, int start) {
+        final int end = name.indexOf('.', start);
+        final String segment = name.substring(start, end < 0 ? name.length() : end);
+        final Node<V> child = node.child(segment);
+        if (child == null) {
+            return node;
+        }
+        final Node<V> newChild;
+        if (end < 0) {
+            if (child.value == null) {
+                return node;
+            }
+            newChild = child.children != null ? new Node<>(child.children, null) : null;
+        } else {
+            newChild = remove(child, name, end + 1);
+            if (newChild == child) {
+                return node;
+            }
+        }
+        final Node<V> ret = node.withChild(segment, newChild);
+        return ret.children == null && ret.value == null ? null : ret;
+    }
+
+    private static final class Node<V> {
+
+        // never modified once the node is built, null if no children
+        private final Map<String, Node<V>> children;
+        private final V value;
+
+        Node(Map<String, Node<V>> children, V value) {
+            this.children = children;
+            this.value = value;
+        }
+
+        Node<V> child(String segment) {
+            return children != null ? children.get(segment) : null;
+        }
+
+        // copy of this node with a child replaced, added or removed if null
+        Node<V> withChild(String segment, Node<V> child) {
+            final Map<String, Node<V>> newChildren = children != null ? new HashMap<>(children) : new HashMap<>();
+            if (child != null) {
+                newChildren.put(segment, child);
+            } else {
+                newChildren.remove(segment);
+            }
+            return new Node<>(newChildren.isEmpty() ? null : newChildren, value);
+        }
+    }
+}
@@ -17,38 +17,47 @@ package com.github.alexfalappa.nbspringboot.projects.service.impl;
 
 import com.github.alexfalappa.nbspringboot.Utils;
 import com.github.alexfalappa.nbspringboot.projects.service.api.HintProvider;
+import com.github.alexfalappa.nbspringboot.projects.service.api.PropertyNameIndex;
 import com.github.alexfalappa.nbspringboot.projects.service.api.SpringBootService;
 import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.INFO;
 import static java.util.logging.Level.SEVERE;
 import static java.util.logging.Level.WARNING;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import static java.util.regex.Pattern.compile;
+import javax.swing.event.ChangeListener;
 import org.netbeans.api.java.classpath.ClassPath;
 import org.netbeans.api.project.Project;
 import org.netbeans.modules.maven.NbMavenProjectImpl;
 import org.netbeans.modules.maven.api.NbMavenProject;
 import org.netbeans.spi.project.ProjectServiceProvider;
+import org.openide.filesystems.FileChangeAdapter;
+import org.openide.filesystems.FileChangeListener;
+import org.openide.filesystems.FileEvent;
 import org.openide.filesystems.FileLock;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileUtil;
+import org.openide.util.ChangeSupport;
 import org.openide.util.Exceptions;
-import org.springframework.boot.bind.RelaxedNames;
+import org.openide.util.RequestProcessor;
 import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
-import org.springframework.boot.configurationmetadata.ConfigurationMetadataRepository;
-import org.springframework.boot.configurationmetadata.ConfigurationMetadataRepositoryJsonBuilder;
-import org.springframework.boot.configurationmetadata.SimpleConfigurationMetadataRepository;
 
 /**
  * Project wide {@link SpringBootService} implementation.
@@ -56,6 +65,20 @@ import org.springframework.boot.configurationmetadata.SimpleConfigurationMetadat
  * It scans the classpath for {@code META-INF/spring-configuration-metadata.json} files, then unmarshals the files into the
  * corresponding {@code ConfigurationMetadata} classes and maintains indexed structures extracted out of it.
  * <p>
+ * Metadata unmarshalled from jars is persisted in a {@link ConfigMetadataIndex} to speed up subsequent IDE sessions. On refresh
+ * only jars added to or removed from the execute classpath are processed and the indexed structures are patched accordingly.
+ * <p>
+ * Indexed structures are held in an immutable {@link MetadataSnapshot} replaced as a whole at the end of each refresh, so that
+ * completion and highlighting threads can query the service without locking while refreshes are serialized. Bursts of pom
+ * changes are coalesced into a single refresh on a background thread, a newer change cancelling an in-flight refresh.
+ * Metadata generated in the project output directory by the configuration processor is re-read alone each time it changes.
+ * Until the Spring Boot jars of a project are resolved, a precompiled {@link MetadataPacks pack} of its Boot version is served.
+ * Clients share the class loader cached by the execute classpath, which the platform replaces when the classpath changes.
+ * Refresh timings, sizes and lookup latencies are recorded in the IDE wide {@link MetadataStats}.
+ * <p>
+ * The service is lazy: creating it costs nothing, Spring Boot detection, pom listening and metadata building start in
+ * background only when metadata is first queried (e.g. a configuration file is opened) or a Boot action runs.
+ * <p>
  * Registered for maven projects with jar and war packaging.
  *
  * @author Alessandro Falappa
@@ -72,42 +95,79 @@ public class SpringBootServiceImpl implements SpringBootService {
 
     private static final Logger logger = Logger.getLogger(SpringBootServiceImpl.class.getName());
     private static final String METADATA_JSON = "META-INF/spring-configuration-metadata.json";
-    private static final Pattern PATTERN_ARRAY_NOTATION = compile("(.+)\\[\\d+\\]");
+    private static final String ADDITIONAL_METADATA_JSON = "META-INF/additional-spring-configuration-metadata.json";
     private static final NoopHintProvider NOOP_HINT_PROVIDER = new NoopHintProvider();
-    private SimpleConfigurationMetadataRepository repo = new SimpleConfigurationMetadataRepository();
-    private final Map<String, ConfigurationMetadataRepository> reposInJars = new HashMap<>();
+    private static final RequestProcessor RP_PARSER = new RequestProcessor("Spring Boot metadata parser",
+            Runtime.getRuntime().availableProcessors());
+    private static final RequestProcessor RP_REFRESH = new RequestProcessor("Spring Boot service refresh", 1, true);
+    private static final int REFRESH_DELAY = 500;
+    private static final int OWN_METADATA_DELAY = 100;
+    private static final String PACK_SOURCE_PREFIX = "pack:";
+    // properties of each metadata source (jar or standalone JSON file) keyed by source path, and sources in classpath order,
+    // only accessed by writers holding the instance lock
+    private final Map<String, Map<String, ConfigurationMetadataProperty>> reposProperties = new HashMap<>();
+    private List<String> reposOrder = Collections.emptyList();
+    // registry keys of the jar sources currently held, keyed by source path
+    private final Map<String, String> reposKeys = new HashMap<>();
     private NbMavenProjectImpl mvnPrj;
-    private String springBootVersion;
-    private ClassPath cpExec;
-    private Map<String, ConfigurationMetadataProperty> cachedProperties;
-    private final Map<String, Boolean> cachedDepsPresence = new HashMap<>();
-    private final Set<String> collectionProperties = new HashSet<>();
-    private final Set<String> mapProperties = new HashSet<>();
-    private final Map<String, HintProvider> providerMap = new HashMap<>();
+    private volatile String springBootVersion;
+    private volatile boolean versionChecked;
+    private volatile ClassPath cpExec;
+    // state read by completion, highlighting and actions, replaced as a whole on each refresh
+    private volatile MetadataSnapshot snapshot = MetadataSnapshot.EMPTY;
+    // set when a refresh completes, until then the snapshot is empty or from a precompiled pack
+    private volatile boolean metadataReady;
+    private final Map<String, HintProvider> providerMap = new ConcurrentHashMap<>();
+    // coalesces bursts of pom changes into a single background refresh
+    private final RequestProcessor.Task refreshTask = RP_REFRESH.create(() -> {
+        long start = System.currentTimeMillis();
+        refresh();
+        long elapsedMs = System.currentTimeMillis() - start;
+        logger.log(FINE, "Spring Boot service refresh took {0}ms", elapsedMs);
+    });
+    private final ChangeSupport changeSupport = new ChangeSupport(this);
+    private final PropertyChangeListener pomListener = (PropertyChangeEvent evt) -> {
+        if (NbMavenProject.PROP_PROJECT.equals(evt.getPropertyName())) {
+            logger.log(FINE, "Maven pom change ({0})", evt.getPropertyName());
+            // a newer change supersedes a pending or in-flight refresh
+            refreshTask.cancel();
+            refreshTask.schedule(REFRESH_DELAY);
+        }
+    };
+    // re-ingests the metadata generated by compiling the project, without touching jar sources
+    private final RequestProcessor.Task ownMetadataTask = RP_REFRESH.create(() -> {
+        if (updateOwnMetadata()) {
+            changeSupport.fireChange();
+        }
+    });
+    private final FileChangeListener ownMetadataListener = new FileChangeAdapter() {
+        @Override
+        public void fileDataCreated(FileEvent fe) {
+            ownMetadataTask.schedule(OWN_METADATA_DELAY);
+        }
+
+        @Override
+        public void fileChanged(FileEvent fe) {
+            ownMetadataTask.schedule(OWN_METADATA_DELAY);
+        }
+
+        @Override
+        public void fileDeleted(FileEvent fe) {
+            ownMetadataTask.schedule(OWN_METADATA_DELAY);
+        }
+    };
+    // metadata files in the project output directory being listened to, and source path of the generated one once seen
+    private final List<File> ownMetadataFiles = new ArrayList<>();
+    private String ownSrcPath;
+    // set on first real use, when the pom listener is added and the metadata build is started
+    private final AtomicBoolean activated = new AtomicBoolean();
 
     public SpringBootServiceImpl(Project p) {
         final FileObject projectDirectory = p.getProjectDirectory();
         if (p instanceof NbMavenProjectImpl) {
-            logger.log(INFO, "Creating Spring Boot service for project {0}", FileUtil.getFileDisplayName(projectDirectory));
+            // keep construction cheap, spring boot detection and metadata build are deferred to first use
+            logger.log(FINE, "Creating Spring Boot service for project {0}", FileUtil.getFileDisplayName(projectDirectory));
             this.mvnPrj = (NbMavenProjectImpl) p;
-            // check maven project is a spring-boot project
-            logger.fine("Checking maven project has a spring boot dependency");
-            springBootVersion = Utils.getSpringBootVersion(mvnPrj).orElse(null);
-            // early exit if no spring boot dependency detected
-            if (springBootVersion == null) {
-                return;
-            }
-            // listen for pom changes
-            logger.info("Adding maven pom listener...");
-            this.mvnPrj.getProjectWatcher().addPropertyChangeListener((PropertyChangeEvent evt) -> {
-                if (NbMavenProject.PROP_PROJECT.equals(evt.getPropertyName())) {
-                    logger.log(FINE, "Maven pom change ({0})", evt.getPropertyName());
-                    long start = System.currentTimeMillis();
-                    refresh();
-                    long elapsedMs = System.currentTimeMillis() - start;
-                    logger.log(FINE, "Spring Boot service refresh took {0}ms", elapsedMs);
-                }
-            });
         } else {
             logger.log(SEVERE, "Error creating Spring Boot service for project {0}", FileUtil.getFileDisplayName(projectDirectory));
         }
@@ -115,184 +175,489 @@ public class SpringBootServiceImpl implements SpringBootService {
 
     @Override
     public void refresh() {
+        final MetadataSnapshot before = snapshot;
+        // a cancelled refresh may still have published a snapshot, e.g. a precompiled pack or a fully merged one
+        if (doRefresh() || snapshot != before) {
+            changeSupport.fireChange();
+        }
+    }
+
+    @Override
+    public void addChangeListener(ChangeListener listener) {
+        changeSupport.addChangeListener(listener);
+    }
+
+    @Override
+    public void removeChangeListener(ChangeListener listener) {
+        changeSupport.removeChangeListener(listener);
+    }
+
+    // rebuild state, returns false if interrupted by a newer refresh request
+    private synchronized boolean doRefresh() {
         logger.info("Refreshing Spring Boot service");
         // re-check maven project is a spring-boot project
-        logger.fine("Checking maven project has a spring boot dependency");
-        springBootVersion = Utils.getSpringBootVersion(mvnPrj).orElse(null);
+        checkSpringBootVersion();
         // clear and exit if no spring boot dependency detected
         if (springBootVersion == null) {
-            reposInJars.clear();
-            collectionProperties.clear();
-            mapProperties.clear();
+            clearMetadata();
+            metadataReady = true;
             // TODO delete nbactions.xml file from project dir ?
-            return;
+            return true;
         }
-        cachedDepsPresence.clear();
         if (cpExec == null) {
             init();
         } else {
             // build configuration metadata repository
             updateConfigRepo();
         }
+        if (Thread.currentThread().isInterrupted()) {
+            MetadataStats.getDefault().refreshCancelled.increment();
+            logger.info("Spring Boot service refresh cancelled");
+            return false;
+        }
+        metadataReady = true;
         // adjust the nbactions.xml file depending on boot version
         adjustNbActions();
+        return true;
     }
 
     @Override
     public ClassPath getManagedClassPath() {
+        activate();
         return cpExec;
     }
 
+    @Override
+    public ClassLoader getManagedClassLoader() {
+        activate();
+        // the cached loader is shared by completion, highlighting and hint providers, when the classpath roots change the
+        // platform detaches it from the classpath and the next request gets a new one
+        final ClassPath cp = cpExec;
+        return cp != null ? cp.getClassLoader(true) : null;
+    }
+
     @Override
     public Set<String> getPropertyNames() {
-        if (cpExec == null) {
-            init();
-        }
-        return cachedProperties.keySet();
+        activate();
+        return snapshot.getProperties().keySet();
     }
 
     @Override
     public Set<String> getCollectionPropertyNames() {
-        return collectionProperties;
+        activate();
+        return snapshot.getCollectionProperties();
     }
 
     @Override
     public Set<String> getMapPropertyNames() {
-        return mapProperties;
+        activate();
+        return snapshot.getMapProperties();
     }
 
     @Override
     public HintProvider getHintProvider(String name) {
+        activate();
         return providerMap.getOrDefault(name, NOOP_HINT_PROVIDER);
     }
 
+    @Override
+    public boolean isMetadataReady() {
+        activate();
+        return metadataReady;
+    }
+
     @Override
     public ConfigurationMetadataProperty getPropertyMetadata(String propertyName) {
-        if (cpExec == null) {
-            init();
-        }
-        if (cachedProperties != null) {
-            // generate and try relaxed variants
-            for (String relaxedName : new RelaxedNames(propertyName)) {
-                if (cachedProperties.containsKey(relaxedName)) {
-                    return cachedProperties.get(relaxedName);
-                } else {
-                    // try to interpret array notation (strip '[index]' from pName)
-                    Matcher mArrNot = PATTERN_ARRAY_NOTATION.matcher(relaxedName);
-                    if (mArrNot.matches()) {
-                        return cachedProperties.get(mArrNot.group(1));
-                    } else {
-                        // try to interpret map notation (see if pName starts with a set of known map props)
-                        for (String mapPropertyName : getMapPropertyNames()) {
-                            if (relaxedName.startsWith(mapPropertyName)) {
-                                return cachedProperties.get(mapPropertyName);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return null;
+        activate();
+        final long start = System.nanoTime();
+        final ConfigurationMetadataProperty ret = snapshot.resolve(propertyName);
+        MetadataStats.getDefault().propertyLookups.record(System.nanoTime() - start);
+        return ret;
+    }
+
+    @Override
+    public ConfigurationMetadataProperty findMapPropertyMetadata(String propertyName) {
+        activate();
+        return snapshot.findMapProperty(propertyName);
     }
 
     @Override
     public List<ConfigurationMetadataProperty> queryPropertyMetadata(String filter) {
-        if (cpExec == null) {
-            init();
-        }
-        List<ConfigurationMetadataProperty> ret = new LinkedList<>();
-        if (cachedProperties != null) {
-            for (String propName : getPropertyNames()) {
-                if (filter == null || propName.contains(filter)) {
-                    ret.add(cachedProperties.get(propName));
-                }
-            }
-        }
+        activate();
+        final long start = System.nanoTime();
+        final List<ConfigurationMetadataProperty> ret = snapshot.getNameIndex().containing(filter);
+        MetadataStats.getDefault().propertyQueries.record(System.nanoTime() - start);
+        return ret;
+    }
+
+    @Override
+    public List<ConfigurationMetadataProperty> matchPropertyMetadata(String filter) {
+        activate();
+        final long start = System.nanoTime();
+        final List<ConfigurationMetadataProperty> ret = snapshot.getNameIndex().matching(filter);
+        MetadataStats.getDefault().propertyQueries.record(System.nanoTime() - start);
+        return ret;
+    }
+
+    @Override
+    public List<PropertyNameIndex.Segment> getPropertySegments(String path) {
+        activate();
+        final long start = System.nanoTime();
+        final List<PropertyNameIndex.Segment> ret = snapshot.getNameIndex().childSegments(path);
+        MetadataStats.getDefault().propertyQueries.record(System.nanoTime() - start);
         return ret;
     }
 
     @Override
     public boolean hasPomDependency(String artifactId) {
-        if (!cachedDepsPresence.containsKey(artifactId)) {
-            cachedDepsPresence.put(artifactId, Utils.dependencyArtifactIdContains(mvnPrj.getProjectWatcher(), artifactId));
-        }
-        return cachedDepsPresence.get(artifactId);
+        return Utils.dependencyArtifactIdContains(mvnPrj.getProjectWatcher(), artifactId);
     }
 
     @Override
     public String getRestartEnvVarName() {
+        activate();
         return isBoot1() ? ENV_RESTART_15 : ENV_RESTART;
     }
 
     @Override
     public String getPluginPropsPrefix() {
+        activate();
         return isBoot1() ? "run" : "spring-boot.run";
     }
 
-    private void init() {
-        // set up a reference to the execute classpath object
-        cpExec = Utils.execClasspathForProj(mvnPrj);
-        if (cpExec != null) {
-            // populate hint providers map
+    /**
+     * Releases the configuration metadata shared with other projects, called when the project is closed.
+     * <p>
+     * Metadata is built again on next use.
+     */
+    synchronized void release() {
+        logger.info("Releasing Spring Boot service metadata");
+        if (activated.compareAndSet(true, false)) {
+            mvnPrj.getProjectWatcher().removePropertyChangeListener(pomListener);
+        }
+        refreshTask.cancel();
+        ownMetadataTask.cancel();
+        unwatchOwnMetadata();
+        clearMetadata();
+        cpExec = null;
+        metadataReady = false;
+    }
+
+    // on first real use start listening for pom changes and build metadata in background, readers meanwhile see empty metadata
+    // (or a precompiled pack) and no ready flag, hint providers do not depend on metadata and are available right away
+    private void activate() {
+        if (mvnPrj != null && activated.compareAndSet(false, true)) {
+            logger.log(INFO, "Activating Spring Boot service for project {0}",
+                    FileUtil.getFileDisplayName(mvnPrj.getProjectDirectory()));
             FileObject resourcesFolder = Utils.resourcesFolderForProj(mvnPrj);
             providerMap.put("logger-name", new LoggerNameHintProvider(resourcesFolder));
-            providerMap.put("class-reference", new ClassReferenceHintProvider(mvnPrj.getProjectDirectory(), cpExec));
-            providerMap.put("handle-as", new HandleAsHintProvider(resourcesFolder, cpExec));
+            providerMap.put("class-reference", new ClassReferenceHintProvider(mvnPrj.getProjectDirectory(), this));
+            providerMap.put("handle-as", new HandleAsHintProvider(resourcesFolder, this));
+            mvnPrj.getProjectWatcher().addPropertyChangeListener(pomListener);
+            refreshTask.schedule(0);
+        }
+    }
+
+    private void checkSpringBootVersion() {
+        logger.fine("Checking maven project has a spring boot dependency");
+        springBootVersion = Utils.getSpringBootVersion(mvnPrj).orElse(null);
+        versionChecked = true;
+    }
+
+    private synchronized void init() {
+        if (cpExec != null) {
+            // initialized by another thread meanwhile
+            return;
+        }
+        // serve the precompiled metadata of the boot version, if any, while the classpath is scanned
+        servePack();
+        // set up a reference to the execute classpath object, readers on other threads see empty metadata until built
+        cpExec = Utils.execClasspathForProj(mvnPrj);
+        if (cpExec != null) {
             // build configuration properties maps
             updateConfigRepo();
+            watchOwnMetadata();
         }
     }
 
-    // Update internal configuration metadata repository
+    // Update internal configuration metadata repository, only sources changed since last update are processed
     private void updateConfigRepo() {
         logger.fine("Updating config metadata repo");
-        repo = new SimpleConfigurationMetadataRepository();
+        final long mark = System.nanoTime();
+        final MetadataStats stats = MetadataStats.getDefault();
+        final ConfigMetadataIndex index = ConfigMetadataIndex.getDefault();
+        final MetadataRegistry registry = MetadataRegistry.getDefault();
         final List<FileObject> cfgMetaFiles = cpExec.findAllResources(METADATA_JSON);
+        final long scanned = System.nanoTime();
+        stats.scan.record(scanned - mark);
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        // unmarshal in parallel the sources added to the classpath or changed on disk (standalone JSON files are always
+        // unmarshalled), jars are acquired from the IDE wide registry possibly sharing properties with other projects
+        final List<String> newOrder = new ArrayList<>(cfgMetaFiles.size());
+        final Map<String, String> newKeys = new HashMap<>();
+        final Map<String, JarAcquisition> acquisitions = new HashMap<>();
+        final Map<String, Future<Map<String, ConfigurationMetadataProperty>>> pending = new HashMap<>();
+        final List<FileObject> bootJars = new ArrayList<>();
         for (FileObject fo : cfgMetaFiles) {
-            try {
-                ConfigurationMetadataRepositoryJsonBuilder builder = ConfigurationMetadataRepositoryJsonBuilder.create();
-                ConfigurationMetadataRepository currRepo;
-                FileObject archiveFo = FileUtil.getArchiveFile(fo);
-                if (archiveFo != null) {
-                    // parse and cache configuration metadata from JSON file in jar
-                    String archivePath = archiveFo.getPath();
-                    if (!reposInJars.containsKey(archivePath)) {
-                        logger.log(INFO, "Unmarshalling configuration metadata from {0}", FileUtil.getFileDisplayName(fo));
-                        ConfigurationMetadataRepository jarRepo = builder.withJsonResource(fo.getInputStream()).build();
-                        reposInJars.put(archivePath, jarRepo);
-                    }
-                    currRepo = reposInJars.get(archivePath);
-                } else {
-                    // parse configuration metadata from standalone JSON file (usually produced by spring configuration processor)
-                    logger.log(INFO, "Unmarshalling configuration metadata from {0}", FileUtil.getFileDisplayName(fo));
-                    currRepo = builder.withJsonResource(fo.getInputStream()).build();
+            final FileObject archiveFo = FileUtil.getArchiveFile(fo);
+            if (archiveFo != null) {
+                final String srcPath = archiveFo.getPath();
+                final String regKey = MetadataRegistry.keyOf(archiveFo);
+                newOrder.add(srcPath);
+                if (MetadataPacks.isBootJar(srcPath)) {
+                    bootJars.add(archiveFo);
                 }
-                repo.include(currRepo);
-            } catch (Exception ex) {
-                Exceptions.printStackTrace(ex);
+                if (!regKey.equals(reposKeys.get(srcPath))) {
+                    final JarAcquisition acquisition = new JarAcquisition(regKey,
+                            () -> loadConfigMetadata(fo, archiveFo, index).properties());
+                    newKeys.put(srcPath, regKey);
+                    acquisitions.put(srcPath, acquisition);
+                    pending.put(srcPath, RP_PARSER.submit(acquisition));
+                }
+            } else {
+                final String srcPath = fo.getPath();
+                newOrder.add(srcPath);
+                pending.put(srcPath, RP_PARSER.submit(() -> loadConfigMetadata(fo, null, index).properties()));
+            }
+        }
+        // wait for unmarshalling to complete before touching current state
+        final Map<String, Map<String, ConfigurationMetadataProperty>> unmarshalled = new HashMap<>();
+        for (Map.Entry<String, Future<Map<String, ConfigurationMetadataProperty>>> entry : pending.entrySet()) {
+            try {
+                unmarshalled.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                // drop the parsing not started yet, loads already running complete and get indexed for later use
+                pending.values().forEach(future -> future.cancel(false));
+                // let acquired jars go, now or as soon as their loading completes
+                acquisitions.values().forEach(JarAcquisition::abandon);
+                return;
+            } catch (ExecutionException ex) {
+                newKeys.remove(entry.getKey());
+                Exceptions.printStackTrace(ex.getCause());
             }
         }
-        // update cached values
-        cachedProperties = repo.getAllProperties();
-        // extract collection/map properties names based on heuristics
-        for (Map.Entry<String, ConfigurationMetadataProperty> entry : cachedProperties.entrySet()) {
-            final String type = entry.getValue().getType();
-            if (type != null) {
-                final String key = entry.getKey();
-                if (type.startsWith("java.util.Map<")) {
-                    mapProperties.add(key);
+        final long parsed = System.nanoTime();
+        stats.parse.record(parsed - scanned);
+        // keep serving a precompiled pack with lowest precedence until spring boot jars are resolved
+        if (bootJars.isEmpty()) {
+            reposOrder.stream().filter(src -> src.startsWith(PACK_SOURCE_PREFIX)).forEach(newOrder::add);
+        }
+        // evict sources no longer in classpath or about to be replaced, collecting the affected property names
+        final Set<String> affected = new HashSet<>();
+        final Set<String> newSources = new HashSet<>(newOrder);
+        for (Iterator<Map.Entry<String, Map<String, ConfigurationMetadataProperty>>> it = reposProperties.entrySet().iterator();
+                it.hasNext();) {
+            Map.Entry<String, Map<String, ConfigurationMetadataProperty>> entry = it.next();
+            if (!newSources.contains(entry.getKey()) || pending.containsKey(entry.getKey())) {
+                affected.addAll(entry.getValue().keySet());
+                it.remove();
+                final String oldKey = reposKeys.remove(entry.getKey());
+                if (oldKey != null) {
+                    registry.release(oldKey);
                 }
-                if (type.startsWith("java.util.List<")
-                        || type.startsWith("java.util.Set<")
-                        || type.startsWith("java.util.Collection<")) {
-                    collectionProperties.add(key);
+            }
+        }
+        reposKeys.putAll(newKeys);
+        // a different relative order of retained sources changes precedences, all properties must be merged again
+        final boolean reordered = !retainedSources(reposOrder).equals(retainedSources(newOrder));
+        // add newly unmarshalled sources
+        for (Map.Entry<String, Map<String, ConfigurationMetadataProperty>> entry : unmarshalled.entrySet()) {
+            reposProperties.put(entry.getKey(), entry.getValue());
+            affected.addAll(entry.getValue().keySet());
+        }
+        reposOrder = newOrder;
+        if (reordered) {
+            affected.addAll(snapshot.getProperties().keySet());
+            reposProperties.values().forEach(srcProps -> affected.addAll(srcProps.keySet()));
+        }
+        // persist newly parsed jar metadata
+        index.save();
+        if (!bootJars.isEmpty() && !MetadataPacks.isCached(springBootVersion)) {
+            storePack(springBootVersion, bootJars);
+        }
+        // publish a patched snapshot, the first source in classpath order defining a property wins
+        snapshot = snapshot.patch(affected, this::mergedProperty);
+        final long merged = System.nanoTime();
+        stats.merge.record(merged - parsed);
+        stats.refresh.record(merged - mark);
+        stats.sizes(reposOrder.size(), snapshot.getProperties().size());
+        logger.log(FINE, "Configuration metadata of {0} sources ({1} unmarshalled, {2} properties affected) merged in {3}ms",
+                new Object[]{reposOrder.size(), pending.size(), affected.size(), (merged - mark) / 1_000_000});
+    }
+
+    // publish the precompiled metadata pack of the current boot version as the only source, if nothing built yet
+    private void servePack() {
+        if (springBootVersion == null || !reposOrder.isEmpty()) {
+            return;
+        }
+        final Map<String, ConfigurationMetadataProperty> packProps = MetadataPacks.load(springBootVersion);
+        if (packProps != null) {
+            final String packSource = PACK_SOURCE_PREFIX + springBootVersion;
+            reposProperties.put(packSource, packProps);
+            reposOrder = Collections.singletonList(packSource);
+            snapshot = snapshot.patch(packProps.keySet(), this::mergedProperty);
+            logger.log(INFO, "Serving precompiled configuration metadata for Spring Boot {0}", springBootVersion);
+        }
+    }
+
+    // build in background the metadata pack of a boot version from the indexed metadata of its jars
+    private static void storePack(String bootVersion, List<FileObject> bootJars) {
+        RP_PARSER.post(() -> {
+            final ConfigMetadataIndex index = ConfigMetadataIndex.getDefault();
+            final List<CompactMetadata> jars = new ArrayList<>(bootJars.size());
+            for (FileObject archiveFo : bootJars) {
+                final CompactMetadata jarMeta = index.lookup(archiveFo);
+                if (jarMeta == null) {
+                    // not indexed, e.g. changed meanwhile, a later refresh will try again
+                    return;
                 }
+                jars.add(jarMeta);
+            }
+            MetadataPacks.store(bootVersion, jars);
+        });
+    }
+
+    // current metadata of a property: the first source in classpath order defining it wins
+    private ConfigurationMetadataProperty mergedProperty(String name) {
+        for (String srcPath : reposOrder) {
+            final Map<String, ConfigurationMetadataProperty> srcProps = reposProperties.get(srcPath);
+            if (srcProps != null && srcProps.containsKey(name)) {
+                return srcProps.get(name);
+            }
+        }
+        return null;
+    }
+
+    // listen to the metadata files the configuration processor generates in the project output directory
+    private void watchOwnMetadata() {
+        final File outDir = mvnPrj.getProjectWatcher().getOutputDirectory(false);
+        for (String path : new String[]{METADATA_JSON, ADDITIONAL_METADATA_JSON}) {
+            final File file = FileUtil.normalizeFile(new File(outDir, path));
+            FileUtil.addFileChangeListener(ownMetadataListener, file);
+            ownMetadataFiles.add(file);
+        }
+        final FileObject fo = FileUtil.toFileObject(ownMetadataFiles.get(0));
+        ownSrcPath = fo != null ? fo.getPath() : null;
+    }
+
+    private void unwatchOwnMetadata() {
+        for (File file : ownMetadataFiles) {
+            FileUtil.removeFileChangeListener(ownMetadataListener, file);
+        }
+        ownMetadataFiles.clear();
+        ownSrcPath = null;
+    }
+
+    // re-ingest the metadata generated in the project output directory patching the current snapshot, returns false if nothing
+    // changed; the configuration processor merges the additional metadata file into the generated one
+    private synchronized boolean updateOwnMetadata() {
+        if (cpExec == null || ownMetadataFiles.isEmpty()) {
+            // full build pending, it will pick up the current file
+            return false;
+        }
+        long mark = System.currentTimeMillis();
+        final FileObject fo = FileUtil.toFileObject(ownMetadataFiles.get(0));
+        final String srcPath = fo != null ? fo.getPath() : ownSrcPath;
+        if (srcPath == null) {
+            return false;
+        }
+        Map<String, ConfigurationMetadataProperty> newProps = null;
+        if (fo != null) {
+            try {
+                newProps = loadConfigMetadata(fo, null, ConfigMetadataIndex.getDefault()).properties();
+            } catch (IOException ex) {
+                // possibly caught while being written, a later event will bring the complete file
+                logger.log(FINE, "Cannot read project configuration metadata: {0}", ex.getMessage());
+                return false;
+            }
+        }
+        final Set<String> affected = new HashSet<>();
+        final Map<String, ConfigurationMetadataProperty> oldProps = reposProperties.remove(srcPath);
+        if (oldProps != null) {
+            affected.addAll(oldProps.keySet());
+        }
+        if (newProps != null) {
+            reposProperties.put(srcPath, newProps);
+            affected.addAll(newProps.keySet());
+            if (!reposOrder.contains(srcPath)) {
+                // project classes come first in the execute classpath
+                final List<String> newOrder = new ArrayList<>(reposOrder.size() + 1);
+                newOrder.add(srcPath);
+                newOrder.addAll(reposOrder);
+                reposOrder = newOrder;
             }
+        } else if (reposOrder.contains(srcPath)) {
+            final List<String> newOrder = new ArrayList<>(reposOrder);
+            newOrder.remove(srcPath);
+            reposOrder = newOrder;
         }
+        ownSrcPath = srcPath;
+        if (affected.isEmpty()) {
+            return false;
+        }
+        snapshot = snapshot.patch(affected, this::mergedProperty);
+        final MetadataStats stats = MetadataStats.getDefault();
+        stats.ownMetadataUpdates.increment();
+        stats.sizes(reposOrder.size(), snapshot.getProperties().size());
+        logger.log(FINE, "Project configuration metadata ({0} properties affected) merged in {1}ms",
+                new Object[]{affected.size(), System.currentTimeMillis() - mark});
+        return true;
+    }
+
+    // release shared metadata and forget all indexed structures
+    private void clearMetadata() {
+        final MetadataRegistry registry = MetadataRegistry.getDefault();
+        reposKeys.values().forEach(registry::release);
+        reposKeys.clear();
+        reposProperties.clear();
+        reposOrder = Collections.emptyList();
+        snapshot = MetadataSnapshot.EMPTY;
+    }
+
+    // sources of the given list that are already known, in the same order
+    private List<String> retainedSources(List<String> order) {
+        List<String> ret = new ArrayList<>(order.size());
+        for (String srcPath : order) {
+            if (reposProperties.containsKey(srcPath)) {
+                ret.add(srcPath);
+            }
+        }
+        return ret;
+    }
+
+    // retrieve from persistent index or stream read the configuration metadata in a JSON file, called on parser threads
+    private static CompactMetadata loadConfigMetadata(FileObject fo, FileObject archiveFo, ConfigMetadataIndex index)
+            throws IOException {
+        if (archiveFo != null) {
+            CompactMetadata jarMeta = index.lookup(archiveFo);
+            if (jarMeta != null) {
+                MetadataStats.getDefault().indexHits.increment();
+                logger.log(FINE, "Configuration metadata of {0} found in index", FileUtil.getFileDisplayName(fo));
+                return jarMeta;
+            }
+            MetadataStats.getDefault().indexMisses.increment();
+        }
+        long start = System.currentTimeMillis();
+        final byte[] bytes = fo.asBytes();
+        final CompactMetadata ret = MetadataJsonReader.read(bytes);
+        MetadataStats.getDefault().jsonFilesParsed.increment();
+        MetadataStats.getDefault().bytesParsed.add(bytes.length);
+        logger.log(INFO, "Read configuration metadata from {0} in {1}ms",
+                new Object[]{FileUtil.getFileDisplayName(fo), System.currentTimeMillis() - start});
+        if (archiveFo != null) {
+            index.store(archiveFo, ret);
+        }
+        return ret;
     }
 
     // tell if the project currently uses Spring Boot 1.x
     private boolean isBoot1() {
+        if (!versionChecked) {
+            checkSpringBootVersion();
+        }
         return springBootVersion != null && springBootVersion.startsWith("1");
     }
 
@@ -345,4 +710,45 @@ public class SpringBootServiceImpl implements SpringBootService {
         }
     }
 
+    // acquisition of the properties of a jar from the registry on a parser thread; if the refresh waiting for it is cancelled
+    // the reference is released by whichever side comes last, without blocking any thread
+    private static final class JarAcquisition implements Callable<Map<String, ConfigurationMetadataProperty>> {
+
+        private final String regKey;
+        private final Callable<Map<String, ConfigurationMetadataProperty>> loader;
+        private boolean acquired;
+        private boolean abandoned;
+
+        JarAcquisition(String regKey, Callable<Map<String, ConfigurationMetadataProperty>> loader) {
+            this.regKey = regKey;
+            this.loader = loader;
+        }
+
+        @Override
+        public Map<String, ConfigurationMetadataProperty> call() throws Exception {
+            final Map<String, ConfigurationMetadataProperty> ret = MetadataRegistry.getDefault().acquire(regKey, loader);
+            synchronized (this) {
+                if (!abandoned) {
+                    acquired = true;
+                    return ret;
+                }
+            }
+            // nobody will consume the result
+            MetadataRegistry.getDefault().release(regKey);
+            return ret;
+        }
+
+        void abandon() {
+            final boolean release;
+            synchronized (this) {
+                abandoned = true;
+                release = acquired;
+                acquired = false;
+            }
+            if (release) {
+                MetadataRegistry.getDefault().release(regKey);
+            }
+        }
+    }
+
 }
@@ -66,4 +66,19 @@ public class UtilsTest {
         assertTrue(Utils.isErrorDeprecated(meta));
     }
 
+    /**
+     * Test of canonicalPropertyName method, of class Utils.
+     */
+    @Test
+    public void testCanonicalPropertyName() {
+        System.out.println("canonicalPropertyName");
+        String expResult = "server.servlet.contextpath";
+        assertEquals(expResult, Utils.canonicalPropertyName("server.servlet.context-path"));
+        assertEquals(expResult, Utils.canonicalPropertyName("server.servlet.contextPath"));
+        assertEquals(expResult, Utils.canonicalPropertyName("server.servlet.context_path"));
+        assertEquals(expResult, Utils.canonicalPropertyName("SERVER.SERVLET.CONTEXT_PATH"));
+        assertSame(expResult, Utils.canonicalPropertyName(expResult));
+        assertEquals("my.list[0]", Utils.canonicalPropertyName("my.List[0]"));
+    }
+
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.cfgprops.completion.items;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test TypeDisplayCache class.
+ *
+ * @author Alessandro Falappa
+ */
+public class TypeDisplayCacheTest {
+
+    @Test
+    public void testDisplayHtml() {
+        System.out.println("displayHtml");
+        String type = "java.util.Map<java.lang.String,java.util.List<java.lang.Integer>>";
+        assertEquals("Map&lt;String,List&lt;Integer&gt;&gt;", TypeDisplayCache.displayHtml(type));
+        assertSame(TypeDisplayCache.displayHtml(type), TypeDisplayCache.displayHtml(new String(type)));
+        assertNull(TypeDisplayCache.displayHtml(null));
+    }
+}
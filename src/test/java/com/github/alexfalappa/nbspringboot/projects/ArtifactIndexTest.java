@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test ArtifactIndex class.
+ *
+ * @author Alessandro Falappa
+ */
+public class ArtifactIndexTest {
+
+    @Test
+    public void testLookups() {
+        System.out.println("lookups");
+        MavenProject mp = new MavenProject();
+        mp.setArtifacts(new HashSet<>(Arrays.asList(
+                artifact("org.springframework.boot", "spring-boot-starter", "2.3.2.RELEASE"),
+                artifact("org.springframework", "spring-core", "5.2.8.RELEASE"))));
+        mp.setDependencies(Arrays.asList(dependency("spring-boot-starter-web"), dependency("lombok")));
+        Object owner = new Object();
+        ArtifactIndex index = ArtifactIndex.of(owner, mp);
+        assertSame(index, ArtifactIndex.of(owner, mp));
+        assertEquals("2.3.2.RELEASE", index.versionOf("org.springframework.boot", "spring-boot-starter").get());
+        assertFalse(index.versionOf("org.springframework.boot", "spring-boot-devtools").isPresent());
+        assertEquals("5.2.8.RELEASE", index.versionOf("org.springframework", "spring-core").get());
+        assertTrue(index.declaredArtifactIdContains("spring-boot"));
+        assertTrue(index.declaredArtifactIdContains("starter-web"));
+        assertFalse(index.declaredArtifactIdContains("spring-core"));
+        // a new model revision gets a new index, even if equal to the previous one
+        MavenProject newRevision = new MavenProject();
+        assertEquals(mp, newRevision);
+        ArtifactIndex newIndex = ArtifactIndex.of(owner, newRevision);
+        assertNotSame(index, newIndex);
+        assertFalse(newIndex.versionOf("org.springframework", "spring-core").isPresent());
+    }
+
+    private static Artifact artifact(String groupId, String artifactId, String version) {
+        return new DefaultArtifact(groupId, artifactId, version, "compile", "jar", null, new DefaultArtifactHandler("jar"));
+    }
+
+    private static Dependency dependency(String artifactId) {
+        Dependency ret = new Dependency();
+        ret.setGroupId("org.example");
+        ret.setArtifactId(artifactId);
+        return ret;
+    }
+}
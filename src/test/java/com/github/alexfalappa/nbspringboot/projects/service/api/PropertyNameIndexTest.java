@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test PropertyNameIndex class.
+ *
+ * @author Alessandro Falappa
+ */
+public class PropertyNameIndexTest {
+
+    private static final PropertyNameIndex INDEX = index(
+            "server.port",
+            "server.servlet.context-path",
+            "server.servlet.session.timeout",
+            "server-extra.enabled",
+            "server",
+            "spring.datasource.url",
+            "spring.datasource.username",
+            "spring.data.mongodb.uri",
+            "logging.level");
+
+    @Test
+    public void testWithPrefix() {
+        System.out.println("withPrefix");
+        assertEquals(Arrays.asList("server", "server.port", "server.servlet.context-path", "server.servlet.session.timeout",
+                "server-extra.enabled"), ids(INDEX.withPrefix("serv")));
+        assertEquals(Arrays.asList("server.port", "server.servlet.context-path", "server.servlet.session.timeout"),
+                ids(INDEX.withPrefix("server.")));
+        assertEquals(Arrays.asList("server.servlet.context-path", "server.servlet.session.timeout"),
+                ids(INDEX.withPrefix("server.servlet")));
+        assertEquals(Arrays.asList("spring.data.mongodb.uri", "spring.datasource.url", "spring.datasource.username"),
+                ids(INDEX.withPrefix("spring.data")));
+        assertEquals(Arrays.asList("spring.datasource.url", "spring.datasource.username"),
+                ids(INDEX.withPrefix("spring.datasource.u")));
+        assertTrue(INDEX.withPrefix("spring.jpa").isEmpty());
+        assertTrue(INDEX.withPrefix("server.port.x").isEmpty());
+        assertEquals(9, INDEX.withPrefix(null).size());
+        assertEquals(9, INDEX.withPrefix("").size());
+    }
+
+    @Test
+    public void testChildSegments() {
+        System.out.println("childSegments");
+        List<PropertyNameIndex.Segment> top = INDEX.childSegments("");
+        assertEquals(Arrays.asList("logging", "server", "server-extra", "spring"), names(top));
+        assertEquals(4, top.get(1).getCount());
+        assertEquals("server", top.get(1).getProperty().getId());
+        assertTrue(top.get(1).hasChildren());
+        assertNull(top.get(2).getProperty());
+        assertEquals(names(top), names(INDEX.childSegments(null)));
+        List<PropertyNameIndex.Segment> server = INDEX.childSegments("server");
+        assertEquals(Arrays.asList("port", "servlet"), names(server));
+        assertEquals("server.port", server.get(0).getProperty().getId());
+        assertFalse(server.get(0).hasChildren());
+        assertEquals(2, server.get(1).getCount());
+        assertEquals(Arrays.asList("data", "datasource"), names(INDEX.childSegments("spring")));
+        assertEquals(Arrays.asList("context-path", "session"), names(INDEX.childSegments("server.servlet")));
+        assertTrue(INDEX.childSegments("spring.jpa").isEmpty());
+        assertTrue(INDEX.childSegments("serv").isEmpty());
+        assertTrue(INDEX.childSegments("server.port").isEmpty());
+        assertEquals("server.servlet", server.get(1).getPath());
+        assertEquals("server", top.get(1).getPath());
+    }
+
+    @Test
+    public void testRelaxedChildSegments() {
+        System.out.println("relaxedChildSegments");
+        assertEquals(Arrays.asList("url", "username"), names(INDEX.childSegments("spring.dataSource")));
+        assertEquals(Arrays.asList("url", "username"), names(INDEX.childSegments("SPRING.DATA_SOURCE")));
+        assertEquals(Arrays.asList("enabled"), names(INDEX.childSegments("serverextra")));
+        // segments are named as in metadata whatever the spelling of the path
+        List<PropertyNameIndex.Segment> servlet = INDEX.childSegments("server.Servlet");
+        assertEquals("server.servlet.context-path", servlet.get(0).getPath());
+        assertEquals("server.servlet.context-path", servlet.get(0).getProperty().getId());
+        assertEquals("server-extra.enabled", INDEX.childSegments("server_extra").get(0).getProperty().getId());
+        assertTrue(INDEX.childSegments("spring.data-sources").isEmpty());
+    }
+
+    @Test
+    public void testContaining() {
+        System.out.println("containing");
+        assertEquals(Arrays.asList("server.servlet.context-path", "server.servlet.session.timeout"),
+                ids(INDEX.containing("servlet")));
+        assertEquals(Arrays.asList("spring.data.mongodb.uri", "spring.datasource.url", "spring.datasource.username"),
+                ids(INDEX.containing("ur")));
+        assertEquals(Arrays.asList("spring.datasource.url", "spring.datasource.username"), ids(INDEX.containing("source.u")));
+        assertTrue(INDEX.containing("xyz").isEmpty());
+        assertEquals(9, INDEX.containing(null).size());
+    }
+
+    @Test
+    public void testBestMatches() {
+        System.out.println("bestMatches");
+        assertEquals(Arrays.asList("spring.datasource.url"), ids(INDEX.bestMatches("s.d.url", 10)));
+        assertEquals("spring.datasource.url", INDEX.bestMatches("sdu", 10).get(0).getId());
+        assertEquals(Arrays.asList("server", "server.port"), ids(INDEX.bestMatches("serv", 2)));
+        assertEquals(Arrays.asList("server.servlet.context-path"), ids(INDEX.bestMatches("contextPath", 10)));
+        assertEquals("spring.data.mongodb.uri", INDEX.bestMatches("uri", 10).get(0).getId());
+        assertTrue(INDEX.bestMatches("xyz", 10).isEmpty());
+        assertTrue(INDEX.bestMatches("serv", 0).isEmpty());
+        assertEquals(3, INDEX.bestMatches(null, 3).size());
+    }
+
+    @Test
+    public void testMatchingNarrow() {
+        System.out.println("matchingNarrow");
+        final List<ConfigurationMetadataProperty> sp = INDEX.matching("spr");
+        assertEquals(Arrays.asList("spring.data.mongodb.uri", "spring.datasource.url", "spring.datasource.username"), ids(sp));
+        assertEquals(ids(INDEX.matching("spr.datas")), ids(PropertyNameIndex.narrow(sp, "spr.datas")));
+        assertEquals(Arrays.asList("spring.datasource.url", "spring.datasource.username"),
+                ids(PropertyNameIndex.narrow(sp, "spr.datas")));
+        assertEquals(Arrays.asList("spring.datasource.url", "spring.datasource.username"),
+                ids(PropertyNameIndex.rank(PropertyNameIndex.narrow(sp, "spr.datas"), "spr.datas", 5)));
+        assertEquals(9, INDEX.matching(null).size());
+    }
+
+    @Test
+    public void testEmpty() {
+        System.out.println("empty");
+        assertEquals(0, PropertyNameIndex.EMPTY.size());
+        assertTrue(PropertyNameIndex.EMPTY.withPrefix("a.b").isEmpty());
+        assertTrue(PropertyNameIndex.EMPTY.containing("abc").isEmpty());
+        assertTrue(PropertyNameIndex.EMPTY.bestMatches("abc", 10).isEmpty());
+    }
+
+    private static PropertyNameIndex index(String... names) {
+        List<ConfigurationMetadataProperty> props = new ArrayList<>();
+        for (String name : names) {
+            ConfigurationMetadataProperty prop = new ConfigurationMetadataProperty();
+            prop.setId(name);
+            props.add(prop);
+        }
+        return new PropertyNameIndex(props);
+    }
+
+    private static List<String> names(List<PropertyNameIndex.Segment> segments) {
+        List<String> ret = new ArrayList<>();
+        for (PropertyNameIndex.Segment segment : segments) {
+            ret.add(segment.getName());
+        }
+        return ret;
+    }
+
+    private static List<String> ids(List<ConfigurationMetadataProperty> props) {
+        List<String> ret = new ArrayList<>();
+        for (ConfigurationMetadataProperty prop : props) {
+            ret.add(prop.getId());
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.api;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import static com.github.alexfalappa.nbspringboot.projects.service.api.PropertyNameMatcher.NO_MATCH;
+import static org.junit.Assert.*;
+
+/**
+ * Test PropertyNameMatcher class.
+ *
+ * @author Alessandro Falappa
+ */
+public class PropertyNameMatcherTest {
+
+    @Test
+    public void testMatches() {
+        System.out.println("matches");
+        assertNotEquals(NO_MATCH, new PropertyNameMatcher("jpa").score("spring.jpa.show-sql"));
+        assertNotEquals(NO_MATCH, new PropertyNameMatcher("s.d.url").score("spring.datasource.url"));
+        assertNotEquals(NO_MATCH, new PropertyNameMatcher("sdu").score("spring.datasource.url"));
+        assertNotEquals(NO_MATCH, new PropertyNameMatcher("ssCP").score("server.servlet.context-path"));
+        assertNotEquals(NO_MATCH, new PropertyNameMatcher("").score("server.port"));
+        // scattered characters not at word starts
+        assertEquals(NO_MATCH, new PropertyNameMatcher("url").score("spring.jpa.hibernate.use-new-id-generator-mappings"));
+        assertEquals(NO_MATCH, new PropertyNameMatcher("xyz").score("server.port"));
+        assertEquals(NO_MATCH, new PropertyNameMatcher("server.port.x").score("server.port"));
+    }
+
+    @Test
+    public void testRanking() {
+        System.out.println("ranking");
+        final PropertyNameMatcher matcher = new PropertyNameMatcher("port");
+        // name start beats segment start beats mid word
+        assertTrue(matcher.score("port.range") > matcher.score("server.port"));
+        assertTrue(matcher.score("server.port") > matcher.score("server.transport"));
+        // consecutive characters beat scattered word starts
+        final PropertyNameMatcher jpa = new PropertyNameMatcher("jpa");
+        assertTrue(jpa.score("spring.jpa.show-sql") > jpa.score("spring.jms.pub-sub-domain.auto"));
+    }
+
+    @Test
+    public void testLocaleIndependent() {
+        System.out.println("localeIndependent");
+        final Locale defaultLocale = Locale.getDefault();
+        try {
+            // in Turkish the uppercase I lowercases to a dotless i
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertNotEquals(NO_MATCH, new PropertyNameMatcher("INIT").score("spring.datasource.initialization-mode"));
+            assertNotEquals(NO_MATCH, new PropertyNameMatcher("sdI").score("spring.datasource.initialization-mode"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test PropertyType class.
+ *
+ * @author Alessandro Falappa
+ */
+public class PropertyTypeTest {
+
+    @Test
+    public void testScalar() {
+        System.out.println("scalar");
+        PropertyType type = PropertyType.of("java.lang.Boolean");
+        assertSame(type, PropertyType.of("java.lang.Boolean"));
+        assertEquals(PropertyType.Container.NONE, type.getContainer());
+        assertSame(type, type.getElementType());
+        assertSame(PropertyType.UNKNOWN, type.getKeyType());
+        assertTrue(type.isBoolean());
+        assertFalse(type.isEnumCandidate());
+        assertTrue(PropertyType.of("java.time.Duration").isDuration());
+        assertTrue(PropertyType.of("org.springframework.util.unit.DataSize").isDataSize());
+        assertTrue(PropertyType.of("org.springframework.boot.logging.LogLevel").isEnumCandidate());
+        assertFalse(PropertyType.of("java.lang.String").isEnumCandidate());
+        assertFalse(PropertyType.of("java.lang.Class<?>").isEnumCandidate());
+        assertSame(PropertyType.UNKNOWN, PropertyType.of(null));
+        assertNull(PropertyType.UNKNOWN.getName());
+    }
+
+    @Test
+    public void testContainers() {
+        System.out.println("containers");
+        PropertyType list = PropertyType.of("java.util.List<java.nio.charset.Charset>");
+        assertEquals(PropertyType.Container.COLLECTION, list.getContainer());
+        assertTrue(list.isSequence());
+        assertTrue(list.getElementType().isCharset());
+        PropertyType array = PropertyType.of("java.util.Locale[]");
+        assertEquals(PropertyType.Container.ARRAY, array.getContainer());
+        assertTrue(array.getElementType().isLocale());
+        PropertyType map = PropertyType.of("java.util.Map<java.lang.String,java.util.List<java.lang.Boolean>>");
+        assertTrue(map.isMap());
+        assertFalse(map.isSequence());
+        assertEquals("java.lang.String", map.getKeyType().getName());
+        assertEquals(PropertyType.Container.COLLECTION, map.getElementType().getContainer());
+        assertTrue(map.getElementType().getElementType().isBoolean());
+        PropertyType enumMap = PropertyType.of("java.util.Map<org.springframework.boot.logging.LogLevel,java.lang.Integer>");
+        assertTrue(enumMap.getKeyType().isEnumCandidate());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataRepositoryJsonBuilder;
+import org.springframework.boot.configurationmetadata.Deprecation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+/**
+ * Test CompactMetadata class.
+ *
+ * @author Alessandro Falappa
+ */
+public class CompactMetadataTest {
+
+    private static final String JSON = "{\"properties\": ["
+            + "{\"name\": \"server.port\", \"type\": \"java.lang.Integer\", \"description\": \"Server HTTP port.\","
+            + " \"defaultValue\": 8080},"
+            + "{\"name\": \"server.address\", \"type\": \"java.net.InetAddress\", \"description\": \"Network address. àèì\"},"
+            + "{\"name\": \"server.old\", \"type\": \"java.lang.Integer\","
+            + " \"deprecation\": {\"level\": \"error\", \"replacement\": \"server.port\"}},"
+            + "{\"name\": \"server.older\", \"type\": \"java.lang.Integer\","
+            + " \"deprecation\": {\"level\": \"error\", \"replacement\": \"server.port\"}},"
+            + "{\"name\": \"logging.level\", \"type\": \"java.util.Map<java.lang.String,java.lang.String>\","
+            + " \"defaultValue\": [\"a\", \"b\"]}"
+            + "], \"hints\": ["
+            + "{\"name\": \"logging.level.values\", \"values\": [{\"value\": \"info\", \"description\": \"Info level.\"}],"
+            + " \"providers\": [{\"name\": \"logger-name\", \"parameters\": {\"group\": true}}]}"
+            + "]}";
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        System.out.println("roundTrip");
+        Map<String, ConfigurationMetadataProperty> source = ConfigurationMetadataRepositoryJsonBuilder.create()
+                .withJsonResource(new ByteArrayInputStream(JSON.getBytes(UTF_8))).build().getAllProperties();
+        CompactMetadata compact = MetadataJsonReader.read(JSON.getBytes(UTF_8));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(baos)) {
+            compact.writeTo(dos);
+        }
+        CompactMetadata decoded = CompactMetadata.readFrom(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        for (CompactMetadata cm : new CompactMetadata[]{compact, decoded}) {
+            Map<String, ConfigurationMetadataProperty> props = cm.properties();
+            assertEquals(source.keySet(), props.keySet());
+            for (ConfigurationMetadataProperty expected : source.values()) {
+                ConfigurationMetadataProperty actual = props.get(expected.getId());
+                assertEquals(expected.getType(), actual.getType());
+                assertEquals(expected.getDescription(), actual.getDescription());
+                assertEquals(expected.getShortDescription(), actual.getShortDescription());
+                assertEquals(expected.isDeprecated(), actual.isDeprecated());
+                assertEquals(expected.getHints().getValueHints().size(), actual.getHints().getValueHints().size());
+                assertEquals(expected.getHints().getValueProviders().size(), actual.getHints().getValueProviders().size());
+            }
+            assertEquals(8080, props.get("server.port").getDefaultValue());
+            assertArrayEquals(new Object[]{"a", "b"}, (Object[]) props.get("logging.level").getDefaultValue());
+            assertEquals("info", props.get("logging.level").getHints().getValueHints().get(0).getValue());
+            assertEquals(Boolean.TRUE,
+                    props.get("logging.level").getHints().getValueProviders().get(0).getParameters().get("group"));
+            // equal deprecations are shared
+            Deprecation depr = props.get("server.old").getDeprecation();
+            assertSame(depr, props.get("server.older").getDeprecation());
+            assertEquals(Deprecation.Level.ERROR, depr.getLevel());
+            assertEquals("server.port", depr.getReplacement());
+            // types are interned
+            assertSame(props.get("server.port").getType(), props.get("server.old").getType());
+        }
+    }
+
+    @Test
+    public void testSharedDeprecations() throws Exception {
+        System.out.println("sharedDeprecations");
+        CompactMetadata first = MetadataJsonReader.read(JSON.getBytes(UTF_8));
+        CompactMetadata second = MetadataJsonReader.read(JSON.getBytes(UTF_8));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(baos)) {
+            first.writeTo(dos);
+        }
+        CompactMetadata decoded = CompactMetadata.readFrom(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        // equal deprecations are shared across sources, whether parsed or decoded
+        Deprecation depr = first.properties().get("server.old").getDeprecation();
+        assertSame(depr, second.properties().get("server.older").getDeprecation());
+        assertSame(depr, decoded.properties().get("server.old").getDeprecation());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+import org.springframework.boot.configurationmetadata.Deprecation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+/**
+ * Test ConfigMetadataIndex class.
+ *
+ * @author Alessandro Falappa
+ */
+public class ConfigMetadataIndexTest {
+
+    private static final String JSON = "{\"properties\": ["
+            + "{\"name\": \"server.port\", \"type\": \"java.lang.Integer\", \"description\": \"Server HTTP port.\","
+            + " \"defaultValue\": 8080},"
+            + "{\"name\": \"server.old\", \"type\": \"java.lang.Integer\","
+            + " \"deprecation\": {\"level\": \"error\", \"replacement\": \"server.port\"}},"
+            + "{\"name\": \"logging.level\", \"type\": \"java.util.Map<java.lang.String,java.lang.String>\"}"
+            + "], \"hints\": ["
+            + "{\"name\": \"logging.level.values\", \"values\": [{\"value\": \"info\", \"description\": \"Info level.\"}],"
+            + " \"providers\": [{\"name\": \"logger-name\"}]}"
+            + "]}";
+
+    @Test
+    public void testStoreLookup() throws Exception {
+        System.out.println("storeLookup");
+        Path dir = Files.createTempDirectory("cfgmeta");
+        File jar = jar(dir, "a.jar");
+        ConfigMetadataIndex index = new ConfigMetadataIndex(dir.resolve("cfgmeta.idx"));
+        assertNull(index.lookup(jar));
+        index.store(jar, MetadataJsonReader.read(JSON.getBytes(UTF_8)));
+        assertMetadata(index.lookup(jar));
+        // persisted and read back from the mapped file
+        index.save();
+        assertMetadata(index.lookup(jar));
+        assertMetadata(new ConfigMetadataIndex(dir.resolve("cfgmeta.idx")).lookup(jar));
+    }
+
+    @Test
+    public void testRepeatedSaves() throws Exception {
+        System.out.println("repeatedSaves");
+        Path dir = Files.createTempDirectory("cfgmeta");
+        Path indexPath = dir.resolve("cfgmeta.idx");
+        File jarA = jar(dir, "a.jar");
+        File jarB = jar(dir, "b.jar");
+        ConfigMetadataIndex first = new ConfigMetadataIndex(indexPath);
+        first.store(jarA, MetadataJsonReader.read(JSON.getBytes(UTF_8)));
+        first.save();
+        // entries of a mapped index survive saving a new generation
+        ConfigMetadataIndex second = new ConfigMetadataIndex(indexPath);
+        second.store(jarB, MetadataJsonReader.read(JSON.getBytes(UTF_8)));
+        second.save();
+        assertMetadata(second.lookup(jarA));
+        second.store(jarB, MetadataJsonReader.read(JSON.getBytes(UTF_8)));
+        second.save();
+        assertMetadata(second.lookup(jarA));
+        assertMetadata(second.lookup(jarB));
+        ConfigMetadataIndex third = new ConfigMetadataIndex(indexPath);
+        assertMetadata(third.lookup(jarA));
+        assertMetadata(third.lookup(jarB));
+        assertTrue(Files.isRegularFile(dir.resolve("cfgmeta.idx.3")));
+        assertFalse(Files.exists(dir.resolve("cfgmeta.idx.1")));
+        assertFalse(Files.exists(dir.resolve("cfgmeta.idx.2")));
+    }
+
+    @Test
+    public void testInterruptedLoad() throws Exception {
+        System.out.println("interruptedLoad");
+        Path dir = Files.createTempDirectory("cfgmeta");
+        Path indexPath = dir.resolve("cfgmeta.idx");
+        File jarA = jar(dir, "a.jar");
+        File jarB = jar(dir, "b.jar");
+        ConfigMetadataIndex first = new ConfigMetadataIndex(indexPath);
+        first.store(jarA, MetadataJsonReader.read(JSON.getBytes(UTF_8)));
+        first.save();
+        // loading on an interrupted thread fails but keeps the file on disk
+        ConfigMetadataIndex second;
+        Thread.currentThread().interrupt();
+        try {
+            second = new ConfigMetadataIndex(indexPath);
+        } finally {
+            Thread.interrupted();
+        }
+        second.store(jarB, MetadataJsonReader.read(JSON.getBytes(UTF_8)));
+        second.save();
+        assertMetadata(second.lookup(jarA));
+        assertMetadata(second.lookup(jarB));
+        ConfigMetadataIndex third = new ConfigMetadataIndex(indexPath);
+        assertMetadata(third.lookup(jarA));
+        assertMetadata(third.lookup(jarB));
+    }
+
+    @Test
+    public void testCorruptedFile() throws Exception {
+        System.out.println("corruptedFile");
+        Path dir = Files.createTempDirectory("cfgmeta");
+        Path indexPath = dir.resolve("cfgmeta.idx");
+        File jar = jar(dir, "a.jar");
+        ConfigMetadataIndex first = new ConfigMetadataIndex(indexPath);
+        first.store(jar, MetadataJsonReader.read(JSON.getBytes(UTF_8)));
+        first.save();
+        Files.write(dir.resolve("cfgmeta.idx.1"), new byte[]{1, 2, 3, 4});
+        ConfigMetadataIndex second = new ConfigMetadataIndex(indexPath);
+        assertNull(second.lookup(jar));
+        second.store(jar, MetadataJsonReader.read(JSON.getBytes(UTF_8)));
+        second.save();
+        assertMetadata(new ConfigMetadataIndex(indexPath).lookup(jar));
+    }
+
+    @Test
+    public void testStaleEntry() throws Exception {
+        System.out.println("staleEntry");
+        Path dir = Files.createTempDirectory("cfgmeta");
+        File jar = jar(dir, "b.jar");
+        ConfigMetadataIndex index = new ConfigMetadataIndex(dir.resolve("cfgmeta.idx"));
+        index.store(jar, MetadataJsonReader.read(JSON.getBytes(UTF_8)));
+        assertTrue(jar.setLastModified(jar.lastModified() - 10_000));
+        assertNull(index.lookup(jar));
+    }
+
+    private static void assertMetadata(CompactMetadata metadata) {
+        assertNotNull(metadata);
+        Map<String, ConfigurationMetadataProperty> props = metadata.properties();
+        assertEquals(3, props.size());
+        ConfigurationMetadataProperty port = props.get("server.port");
+        assertEquals("java.lang.Integer", port.getType());
+        assertEquals("Server HTTP port.", port.getDescription());
+        assertEquals(8080, port.getDefaultValue());
+        Deprecation depr = props.get("server.old").getDeprecation();
+        assertEquals(Deprecation.Level.ERROR, depr.getLevel());
+        assertEquals("server.port", depr.getReplacement());
+        ConfigurationMetadataProperty level = props.get("logging.level");
+        assertEquals("info", level.getHints().getValueHints().get(0).getValue());
+        assertEquals("logger-name", level.getHints().getValueProviders().get(0).getName());
+    }
+
+    private static File jar(Path dir, String name) throws IOException {
+        return Files.write(dir.resolve(name), new byte[]{'P', 'K', 3, 4}).toFile();
+    }
+}
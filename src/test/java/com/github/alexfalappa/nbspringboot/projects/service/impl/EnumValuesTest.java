@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test EnumValues class.
+ *
+ * @author Alessandro Falappa
+ */
+public class EnumValuesTest {
+
+    @Test
+    public void testOf() {
+        System.out.println("of");
+        ClassLoader cl = getClass().getClassLoader();
+        EnumValues values = EnumValues.of(cl, "java.util.concurrent.TimeUnit");
+        assertFalse(values.isEmpty());
+        assertSame(values, EnumValues.of(cl, "java.util.concurrent.TimeUnit"));
+        assertNotSame(values, EnumValues.of(new ClassLoader(cl) {
+        }, "java.util.concurrent.TimeUnit"));
+        assertSame(EnumValues.NONE, EnumValues.of(cl, "java.lang.String"));
+        assertSame(EnumValues.NONE, EnumValues.of(cl, "com.acme.Missing"));
+        assertSame(EnumValues.NONE, EnumValues.of(null, "java.util.concurrent.TimeUnit"));
+    }
+
+    @Test
+    public void testForEachMatching() {
+        System.out.println("forEachMatching");
+        EnumValues values = EnumValues.of(getClass().getClassLoader(), "java.lang.annotation.ElementType");
+        List<String> matches = new ArrayList<>();
+        values.forEachMatching("type_", matches::add);
+        assertEquals(Arrays.asList("type-parameter", "type-use"), matches);
+        matches.clear();
+        values.forEachMatching("type-p", matches::add);
+        assertEquals(Arrays.asList("type-parameter"), matches);
+        matches.clear();
+        values.forEachMatching(null, matches::add);
+        assertTrue(matches.contains("annotation-type"));
+    }
+
+    @Test
+    public void testLocaleIndependent() {
+        System.out.println("localeIndependent");
+        final Locale defaultLocale = Locale.getDefault();
+        try {
+            // in Turkish the uppercase I lowercases to a dotless i
+            Locale.setDefault(new Locale("tr", "TR"));
+            // a new class loader to load the values under the Turkish locale
+            EnumValues values = EnumValues.of(new ClassLoader(getClass().getClassLoader()) {
+            }, "java.util.concurrent.TimeUnit");
+            List<String> matches = new ArrayList<>();
+            values.forEachMatching("minutes", matches::add);
+            assertEquals(Arrays.asList("minutes"), matches);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test LayeredMap class.
+ *
+ * @author Alessandro Falappa
+ */
+public class LayeredMapTest {
+
+    @Test
+    public void testPatch() {
+        System.out.println("patch");
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.put("k" + i, i);
+        }
+        LayeredMap<String, Integer> map = LayeredMap.<String, Integer>empty().patch(expected);
+        assertEquals(expected, map);
+        Map<String, Integer> changes = new HashMap<>();
+        changes.put("k1", -1);
+        changes.put("k2", null);
+        changes.put("new", 5);
+        changes.put("missing", null);
+        LayeredMap<String, Integer> patched = map.patch(changes);
+        assertTrue(patched.sharesBase(map));
+        expected.put("k1", -1);
+        expected.remove("k2");
+        expected.put("new", 5);
+        assertEquals(expected, patched);
+        assertEquals(expected.hashCode(), patched.hashCode());
+        assertEquals(1000, patched.size());
+        assertNull(patched.get("k2"));
+        assertFalse(patched.containsKey("missing"));
+        assertEquals(Integer.valueOf(1), map.get("k1"));
+        assertSame(patched, patched.patch(new HashMap<>()));
+    }
+
+    @Test
+    public void testMerge() {
+        System.out.println("merge");
+        Map<String, Integer> expected = new HashMap<>();
+        LayeredMap<String, Integer> map = LayeredMap.empty();
+        for (int i = 0; i < 2000; i++) {
+            Map<String, Integer> change = new HashMap<>();
+            change.put("k" + i, i);
+            if (i % 3 == 0) {
+                change.put("k" + i / 2, null);
+                expected.remove("k" + i / 2);
+            }
+            expected.putAll(change);
+            expected.values().remove(null);
+            map = map.patch(change);
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.size());
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.Test;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+import static org.junit.Assert.*;
+
+/**
+ * Heap footprint regression harness for configuration metadata indexing.
+ * <p>
+ * Builds the per source property maps and the {@link MetadataSnapshot} as {@code SpringBootServiceImpl} does, reporting
+ * retained heap, allocated bytes and build time, and fails when any exceeds the baselines stored in
+ * {@code footprint-baselines.properties}. Baselines are ceilings: lower them after an optimization, never raise them silently.
+ * <p>
+ * Excluded from the ordinary test run, execute it with the {@code footprint} profile. System properties:
+ * <ul>
+ * <li>{@code footprint.sizes}: comma separated property counts of the synthetic sets, defaults to {@value #DEFAULT_SIZES}</li>
+ * <li>{@code footprint.files}: comma separated metadata JSON files or jars forming a real set named {@code files}</li>
+ * <li>{@code footprint.baselines}: alternate baselines properties file</li>
+ * </ul>
+ *
+ * @author Alessandro Falappa
+ */
+public class MetadataFootprintTest {
+
+    private static final String DEFAULT_SIZES = "1000,10000,50000";
+    private static final String METADATA_JSON = "META-INF/spring-configuration-metadata.json";
+    // properties per synthetic source, about the size of a spring boot autoconfigure jar group
+    private static final int PROPS_PER_SOURCE = 2000;
+    private static final String[] TYPES = {
+        "java.lang.String", "java.lang.Integer", "java.lang.Boolean", "java.time.Duration",
+        "org.springframework.util.unit.DataSize", "java.util.List<java.lang.String>",
+        "java.util.Map<java.lang.String,java.lang.String>", "java.nio.charset.Charset", "com.acme.Mode"
+    };
+
+    @Test
+    public void testFootprint() throws IOException {
+        System.out.println("footprint");
+        final Properties baselines = loadBaselines();
+        final List<String> failures = new ArrayList<>();
+        for (String size : System.getProperty("footprint.sizes", DEFAULT_SIZES).split(",")) {
+            final int count = Integer.parseInt(size.trim());
+            check("synthetic." + count, syntheticSet(count), baselines, failures);
+        }
+        final String files = System.getProperty("footprint.files");
+        if (files != null && !files.trim().isEmpty()) {
+            check("files", realSet(files.split(",")), baselines, failures);
+        }
+        assertTrue("Footprint exceeds baselines:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    private static void check(String setName, List<byte[]> sources, Properties baselines, List<String> failures) {
+        // warm up class loading and JIT on a throwaway build
+        build(sources);
+        final Footprint fp = measure(sources);
+        System.out.println(String.format(Locale.ROOT,
+                "%-18s %6d properties  retained %8d KiB  allocated %9d KiB  built in %5d ms",
+                setName, fp.properties, fp.retainedBytes / 1024, fp.allocatedBytes / 1024, fp.buildMillis));
+        exceeds(setName, "retainedBytes", fp.retainedBytes, baselines, failures);
+        exceeds(setName, "allocatedBytes", fp.allocatedBytes, baselines, failures);
+        exceeds(setName, "buildMillis", fp.buildMillis, baselines, failures);
+    }
+
+    private static void exceeds(String setName, String metric, long value, Properties baselines, List<String> failures) {
+        final String baseline = baselines.getProperty(setName + '.' + metric);
+        if (baseline != null && value >= 0 && value > Long.parseLong(baseline.trim())) {
+            failures.add(String.format("%s.%s = %d > %s", setName, metric, value, baseline.trim()));
+        }
+    }
+
+    private static Footprint measure(List<byte[]> sources) {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final long usedBefore = settledHeapUsage(memory);
+        final long allocBefore = threadAllocatedBytes();
+        final long start = System.nanoTime();
+        final Built built = build(sources);
+        final long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        final long allocAfter = threadAllocatedBytes();
+        final long usedAfter = settledHeapUsage(memory);
+        final Footprint ret = new Footprint();
+        ret.properties = built.snapshot.getProperties().size();
+        ret.retainedBytes = Math.max(0, usedAfter - usedBefore);
+        ret.allocatedBytes = allocBefore < 0 ? -1 : allocAfter - allocBefore;
+        ret.buildMillis = buildMillis;
+        // keep built structures reachable until after the heap has been sampled
+        assertEquals(sources.size(), built.sources.size());
+        return ret;
+    }
+
+    // mimics a full refresh of the service: sources unmarshalled in classpath order, the first defining a property wins
+    private static Built build(List<byte[]> sources) {
+        final Built ret = new Built();
+        final Set<String> affected = new HashSet<>();
+        for (byte[] json : sources) {
+            try {
+                final Map<String, ConfigurationMetadataProperty> props = MetadataJsonReader.read(json).properties();
+                ret.sources.add(props);
+                affected.addAll(props.keySet());
+            } catch (IOException ex) {
+                throw new AssertionError(ex);
+            }
+        }
+        ret.snapshot = MetadataSnapshot.EMPTY.patch(affected, name -> {
+            for (Map<String, ConfigurationMetadataProperty> props : ret.sources) {
+                final ConfigurationMetadataProperty prop = props.get(name);
+                if (prop != null) {
+                    return prop;
+                }
+            }
+            return null;
+        });
+        return ret;
+    }
+
+    private static long settledHeapUsage(MemoryMXBean memory) {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            final long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                return used;
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    // bytes allocated by the current thread, -1 if the JVM cannot tell
+    private static long threadAllocatedBytes() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static Properties loadBaselines() throws IOException {
+        final Properties ret = new Properties();
+        final String path = System.getProperty("footprint.baselines");
+        try (InputStream is = path != null ? Files.newInputStream(Paths.get(path))
+                : MetadataFootprintTest.class.getResourceAsStream("/footprint-baselines.properties")) {
+            if (is != null) {
+                ret.load(is);
+            }
+        }
+        return ret;
+    }
+
+    private static List<byte[]> realSet(String[] paths) throws IOException {
+        final List<byte[]> ret = new ArrayList<>();
+        for (String path : paths) {
+            final String trimmed = path.trim();
+            if (trimmed.endsWith(".jar")) {
+                try (ZipFile zip = new ZipFile(trimmed)) {
+                    final ZipEntry entry = zip.getEntry(METADATA_JSON);
+                    if (entry != null) {
+                        try (InputStream is = zip.getInputStream(entry)) {
+                            ret.add(readAll(is));
+                        }
+                    }
+                }
+            } else {
+                ret.add(Files.readAllBytes(Paths.get(trimmed)));
+            }
+        }
+        return ret;
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) > 0) {
+            bos.write(buf, 0, n);
+        }
+        return bos.toByteArray();
+    }
+
+    // deterministic metadata resembling the spring boot one: groups of related properties, descriptions, defaults, some
+    // deprecations and hints, about one property in a hundred redefined by a later source
+    static List<byte[]> syntheticSet(int count) {
+        final List<byte[]> ret = new ArrayList<>();
+        for (int first = 0; first < count; first += PROPS_PER_SOURCE) {
+            final int last = Math.min(count, first + PROPS_PER_SOURCE);
+            final StringBuilder sb = new StringBuilder(300 * (last - first)).append("{\"groups\":[],\"properties\":[");
+            final StringBuilder hints = new StringBuilder();
+            for (int i = first; i < last; i++) {
+                final int id = i % 100 == 99 && i >= PROPS_PER_SOURCE ? i - PROPS_PER_SOURCE + 1 : i;
+                final String name = String.format(Locale.ROOT, "acme.module%d.group%d.setting-%d", id / 400, id / 20, id);
+                final String type = TYPES[id % TYPES.length];
+                if (i > first) {
+                    sb.append(',');
+                }
+                sb.append("{\"name\":\"").append(name).append("\",\"type\":\"").append(type)
+                        .append("\",\"sourceType\":\"com.acme.autoconfigure.Module").append(id / 400).append("Properties")
+                        .append("\",\"description\":\"Whether to tune setting ").append(id)
+                        .append(" of the module. Applies to every request handled by the group, see the reference guide.\"");
+                if (id % 10 == 0) {
+                    sb.append(",\"defaultValue\":").append(type.endsWith("Integer") ? String.valueOf(id) : "\"value-" + id + '"');
+                }
+                if (id % 50 == 0) {
+                    sb.append(",\"deprecation\":{\"level\":\"warning\",\"replacement\":\"").append(name).append("-new\"}");
+                }
+                sb.append('}');
+                if (id % 25 == 0) {
+                    hints.append(hints.length() > 0 ? "," : "").append("{\"name\":\"").append(name)
+                            .append("\",\"values\":[{\"value\":\"fast\",\"description\":\"Fast mode.\"},")
+                            .append("{\"value\":\"safe\",\"description\":\"Safe mode.\"}]}");
+                }
+            }
+            sb.append("],\"hints\":[").append(hints).append("]}");
+            ret.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return ret;
+    }
+
+    private static final class Built {
+
+        private final List<Map<String, ConfigurationMetadataProperty>> sources = new ArrayList<>();
+        private MetadataSnapshot snapshot;
+    }
+
+    private static final class Footprint {
+
+        private int properties;
+        private long retainedBytes;
+        private long allocatedBytes;
+        private long buildMillis;
+    }
+}
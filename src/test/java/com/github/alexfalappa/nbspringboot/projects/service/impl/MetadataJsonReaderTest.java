@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataRepositoryJsonBuilder;
+import org.springframework.boot.configurationmetadata.Deprecation;
+import org.springframework.boot.configurationmetadata.ValueHint;
+import org.springframework.boot.configurationmetadata.ValueProvider;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+/**
+ * Test MetadataJsonReader class.
+ *
+ * @author Alessandro Falappa
+ */
+public class MetadataJsonReaderTest {
+
+    private static final String JSON = "{\"groups\": [{\"name\": \"server\", \"type\": \"a.b.ServerProperties\"}],"
+            + " \"hints\": ["
+            + "{\"name\": \"spring.jpa.properties.keys\", \"values\": [{\"value\": \"hibernate.ddl\"}]},"
+            + "{\"name\": \"spring.jpa.properties.values\", \"values\": [{\"value\": \"none\", \"description\": \"No DDL.\"}]},"
+            + "{\"name\": \"server.shutdown\", \"values\": [{\"value\": \"graceful\"}, {\"value\": [1, 2]}]},"
+            + "{\"name\": \"unknown.property\", \"values\": [{\"value\": \"x\"}]}"
+            + "], \"properties\": ["
+            + "{\"name\": \"server.shutdown\", \"type\": \"a.b.Shutdown\","
+            + " \"description\": \"Type of \\\"shutdown\\\" \\u00e0 \\\\ the server. Second sentence.\"},"
+            + "{\"name\": \"server.multi\", \"type\": \"java.lang.String\", \"description\": \"First line\\nsecond line\"},"
+            + "{\"name\": \"server.legacy\", \"deprecated\": true, \"defaultValue\": 1.5},"
+            + "{\"name\": \"server.removed\", \"deprecation\": {\"reason\": \"Gone. Really.\", \"replacement\": \"server.new\"}},"
+            + "{\"name\": \"spring.jpa.properties\", \"type\": \"java.util.Map<java.lang.String,java.lang.String>\","
+            + " \"defaultValue\": {\"a\": true}, \"sourceType\": \"a.b.JpaProperties\"}"
+            + "]}";
+
+    @Test
+    public void testSameAsSpringBuilder() throws Exception {
+        System.out.println("sameAsSpringBuilder");
+        Map<String, ConfigurationMetadataProperty> expected = ConfigurationMetadataRepositoryJsonBuilder.create()
+                .withJsonResource(new ByteArrayInputStream(JSON.getBytes(UTF_8))).build().getAllProperties();
+        Map<String, ConfigurationMetadataProperty> actual = MetadataJsonReader.read(JSON.getBytes(UTF_8)).properties();
+        assertEquals(expected.keySet(), actual.keySet());
+        for (ConfigurationMetadataProperty exp : expected.values()) {
+            ConfigurationMetadataProperty act = actual.get(exp.getId());
+            assertEquals(exp.getType(), act.getType());
+            assertEquals(exp.getDescription(), act.getDescription());
+            assertEquals(exp.getShortDescription(), act.getShortDescription());
+            assertDeprecationEquals(exp.getDeprecation(), act.getDeprecation());
+            assertHintsEquals(exp.getHints().getKeyHints(), act.getHints().getKeyHints());
+            assertHintsEquals(exp.getHints().getValueHints(), act.getHints().getValueHints());
+            assertProvidersEquals(exp.getHints().getValueProviders(), act.getHints().getValueProviders());
+        }
+        assertEquals(1.5, actual.get("server.legacy").getDefaultValue());
+        assertEquals(Boolean.TRUE, ((Map<?, ?>) actual.get("spring.jpa.properties").getDefaultValue()).get("a"));
+        assertArrayEquals(new Object[]{1, 2}, (Object[]) actual.get("server.shutdown").getHints().getValueHints().get(1)
+                .getValue());
+        // hints are decoded once
+        assertSame(actual.get("server.shutdown").getHints(), actual.get("server.shutdown").getHints());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformed() throws Exception {
+        System.out.println("malformed");
+        MetadataJsonReader.read("{\"properties\": [{\"type\": \"java.lang.String\"}]}".getBytes(UTF_8));
+    }
+
+    private static void assertDeprecationEquals(Deprecation expected, Deprecation actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertEquals(expected.getLevel(), actual.getLevel());
+        assertEquals(expected.getReason(), actual.getReason());
+        assertEquals(expected.getShortReason(), actual.getShortReason());
+        assertEquals(expected.getReplacement(), actual.getReplacement());
+    }
+
+    private static void assertHintsEquals(List<ValueHint> expected, List<ValueHint> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Object expValue = expected.get(i).getValue();
+            if (!(expValue instanceof Object[])) {
+                assertEquals(expValue, actual.get(i).getValue());
+            }
+            assertEquals(expected.get(i).getDescription(), actual.get(i).getDescription());
+            assertEquals(expected.get(i).getShortDescription(), actual.get(i).getShortDescription());
+        }
+    }
+
+    private static void assertProvidersEquals(List<ValueProvider> expected, List<ValueProvider> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getParameters(), actual.get(i).getParameters());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+/**
+ * Test MetadataPacks class.
+ *
+ * @author Alessandro Falappa
+ */
+public class MetadataPacksTest {
+
+    // no pack is bundled for this version
+    private static final String VERSION = "0.0.0-TEST";
+    private static final String BOOT_JSON = "{\"properties\": ["
+            + "{\"name\": \"server.port\", \"type\": \"java.lang.Integer\", \"description\": \"Server HTTP port.\","
+            + " \"defaultValue\": 8080},"
+            + "{\"name\": \"logging.level\", \"type\": \"java.util.Map<java.lang.String,java.lang.String>\"}"
+            + "]}";
+    private static final String AUTOCONFIGURE_JSON = "{\"properties\": ["
+            + "{\"name\": \"server.port\", \"type\": \"java.lang.Long\"},"
+            + "{\"name\": \"spring.main.banner-mode\", \"type\": \"org.springframework.boot.Banner$Mode\"}"
+            + "]}";
+
+    @Test
+    public void testStoreLoad() throws Exception {
+        System.out.println("storeLoad");
+        Path packPath = Files.createTempDirectory("packs").resolve("test.pack");
+        assertNull(MetadataPacks.load(VERSION, packPath));
+        MetadataPacks.store(VERSION, Arrays.asList(MetadataJsonReader.read(BOOT_JSON.getBytes(UTF_8)),
+                MetadataJsonReader.read(AUTOCONFIGURE_JSON.getBytes(UTF_8))), packPath);
+        Map<String, ConfigurationMetadataProperty> props = MetadataPacks.load(VERSION, packPath);
+        assertNotNull(props);
+        assertEquals(3, props.size());
+        // the first jar defining a property wins
+        assertEquals("java.lang.Integer", props.get("server.port").getType());
+        assertEquals("Server HTTP port.", props.get("server.port").getDescription());
+        assertEquals(8080, props.get("server.port").getDefaultValue());
+        assertEquals("org.springframework.boot.Banner$Mode", props.get("spring.main.banner-mode").getType());
+        assertTrue(props.containsKey("logging.level"));
+        assertFalse(Files.exists(packPath.resolveSibling("test.pack.tmp")));
+    }
+
+    @Test
+    public void testOutdatedFormat() throws Exception {
+        System.out.println("outdatedFormat");
+        Path packPath = Files.createTempDirectory("packs").resolve("test.pack");
+        MetadataPacks.store(VERSION, Arrays.asList(MetadataJsonReader.read(BOOT_JSON.getBytes(UTF_8))), packPath);
+        assertNotNull(MetadataPacks.load(VERSION, packPath));
+        // the format version follows the magic number
+        byte[] bytes = Files.readAllBytes(packPath);
+        ByteBuffer.wrap(bytes).putInt(4, ConfigMetadataIndex.FORMAT_VERSION - 1);
+        Files.write(packPath, bytes);
+        assertNull(MetadataPacks.load(VERSION, packPath));
+    }
+
+    @Test
+    public void testIsBootJar() {
+        System.out.println("isBootJar");
+        assertTrue(MetadataPacks.isBootJar(
+                "/home/user/.m2/repository/org/springframework/boot/spring-boot/2.3.4.RELEASE/spring-boot-2.3.4.RELEASE.jar"));
+        assertTrue(MetadataPacks.isBootJar("C:\\Users\\user\\.m2\\repository\\org\\springframework\\boot"
+                + "\\spring-boot-autoconfigure\\2.3.4.RELEASE\\spring-boot-autoconfigure-2.3.4.RELEASE.jar"));
+        assertFalse(MetadataPacks.isBootJar(
+                "/home/user/.m2/repository/org/springframework/spring-core/5.2.9.RELEASE/spring-core-5.2.9.RELEASE.jar"));
+        assertFalse(MetadataPacks.isBootJar("C:\\Users\\user\\.m2\\repository\\org\\springframework\\spring-core"
+                + "\\5.2.9.RELEASE\\spring-core-5.2.9.RELEASE.jar"));
+    }
+}
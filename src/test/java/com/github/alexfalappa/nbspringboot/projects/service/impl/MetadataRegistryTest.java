@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test MetadataRegistry class.
+ *
+ * @author Alessandro Falappa
+ */
+public class MetadataRegistryTest {
+
+    @Test
+    public void testAcquireRelease() throws Exception {
+        System.out.println("acquireRelease");
+        MetadataRegistry registry = MetadataRegistry.getDefault();
+        AtomicInteger loads = new AtomicInteger();
+        ConfigurationMetadataProperty prop = new ConfigurationMetadataProperty();
+        prop.setId("server.port");
+        final String key = "/test/a.jar|10|20";
+        Map<String, ConfigurationMetadataProperty> first = registry.acquire(key, () -> {
+            loads.incrementAndGet();
+            return Collections.singletonMap("server.port", prop);
+        });
+        Map<String, ConfigurationMetadataProperty> second = registry.acquire(key, () -> {
+            loads.incrementAndGet();
+            return Collections.emptyMap();
+        });
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertEquals(1, registry.size());
+        registry.release(key);
+        assertEquals(1, registry.size());
+        registry.release(key);
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testFailedLoad() throws Exception {
+        System.out.println("failedLoad");
+        MetadataRegistry registry = MetadataRegistry.getDefault();
+        final String key = "/test/b.jar|10|20";
+        try {
+            registry.acquire(key, () -> {
+                throw new IOException("broken");
+            });
+            fail("IOException expected");
+        } catch (IOException ex) {
+            assertEquals("broken", ex.getMessage());
+        }
+        assertEquals(0, registry.size());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.springframework.boot.configurationmetadata.ConfigurationMetadataProperty;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test MetadataSnapshot class.
+ *
+ * @author Alessandro Falappa
+ */
+public class MetadataSnapshotTest {
+
+    @Test
+    public void testResolve() {
+        System.out.println("resolve");
+        Map<String, ConfigurationMetadataProperty> props = new HashMap<>();
+        add(props, "server.servlet.context-path", "java.lang.String");
+        add(props, "spring.profiles.include", "java.util.List<java.lang.String>");
+        add(props, "logging.level", "java.util.Map<java.lang.String,java.lang.String>");
+        MetadataSnapshot snapshot = MetadataSnapshot.EMPTY.patch(props.keySet(), props::get);
+        assertEquals(3, snapshot.getProperties().size());
+        assertEquals(Collections.singleton("logging.level"), snapshot.getMapProperties());
+        assertEquals(Collections.singleton("spring.profiles.include"), snapshot.getCollectionProperties());
+        final ConfigurationMetadataProperty ctxPath = props.get("server.servlet.context-path");
+        assertSame(ctxPath, snapshot.resolve("server.servlet.context-path"));
+        assertSame(ctxPath, snapshot.resolve("server.servlet.contextPath"));
+        assertSame(ctxPath, snapshot.resolve("SERVER_SERVLET_CONTEXTPATH"));
+        assertSame(props.get("spring.profiles.include"), snapshot.resolve("spring.profiles.include[2]"));
+        assertSame(props.get("logging.level"), snapshot.resolve("logging.level.com.acme"));
+        assertSame(props.get("logging.level"), snapshot.findMapProperty("logging.level.com.acme"));
+        assertNull(snapshot.resolve("server.port"));
+        // removal leaves the previous snapshot untouched
+        MetadataSnapshot patched = snapshot.patch(Collections.singleton("logging.level"), name -> null);
+        assertNull(patched.resolve("logging.level.com.acme"));
+        assertTrue(patched.getMapProperties().isEmpty());
+        assertSame(props.get("logging.level"), snapshot.resolve("logging.level.com.acme"));
+    }
+
+    @Test
+    public void testPatchOneSource() {
+        System.out.println("patchOneSource");
+        Map<String, ConfigurationMetadataProperty> big = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            add(big, "acme.group" + i / 100 + ".setting-" + i, i % 10 == 0 ? "java.util.Map<java.lang.String,java.lang.String>"
+                    : "java.lang.String");
+        }
+        Map<String, ConfigurationMetadataProperty> own = new HashMap<>();
+        add(own, "app.name", "java.lang.String");
+        add(own, "app.tags", "java.util.Map<java.lang.String,java.lang.String>");
+        Map<String, ConfigurationMetadataProperty> all = new HashMap<>(big);
+        all.putAll(own);
+        MetadataSnapshot snapshot = MetadataSnapshot.EMPTY.patch(all.keySet(), all::get);
+        assertEquals(5002, snapshot.getNameIndex().containing(null).size());
+        // the own source is compiled again: one property changes, one is removed, one is added
+        Set<String> affected = new HashSet<>(own.keySet());
+        add(own, "app.name", "java.lang.Integer");
+        own.remove("app.tags");
+        add(own, "app.version", "java.lang.String");
+        affected.addAll(own.keySet());
+        MetadataSnapshot patched = snapshot.patch(affected, name -> {
+            assertTrue("unaffected property resolved: " + name, affected.contains(name));
+            return own.get(name);
+        });
+        // unaffected entries are shared, not copied, and names are indexed again only when queried
+        assertTrue(((LayeredMap<?, ?>) patched.getProperties()).sharesBase((LayeredMap<?, ?>) snapshot.getProperties()));
+        assertFalse(patched.isNameIndexBuilt());
+        assertEquals(5002, patched.getProperties().size());
+        assertSame(big.get("acme.group7.setting-700"), patched.resolve("acme.group7.setting-700"));
+        assertSame(big.get("acme.group7.setting-700"), patched.findMapProperty("acme.group7.setting-700.key"));
+        assertEquals("java.lang.Integer", patched.resolve("app.name").getType());
+        assertNull(patched.resolve("app.tags"));
+        assertNull(patched.findMapProperty("app.tags.key"));
+        assertFalse(patched.getMapProperties().contains("app.tags"));
+        assertNotNull(patched.resolve("app.version"));
+        assertEquals(5002, patched.getNameIndex().containing(null).size());
+        assertTrue(patched.isNameIndexBuilt());
+        // the previous snapshot is untouched
+        assertEquals("java.lang.String", snapshot.resolve("app.name").getType());
+        assertNotNull(snapshot.findMapProperty("app.tags.key"));
+    }
+
+    @Test
+    public void testRelaxedNameCollision() {
+        System.out.println("relaxedNameCollision");
+        Map<String, ConfigurationMetadataProperty> props = new HashMap<>();
+        add(props, "server.context-path", "java.lang.String");
+        add(props, "server.contextPath", "java.lang.String");
+        add(props, "app.extra-props", "java.util.Map<java.lang.String,java.lang.String>");
+        add(props, "app.extraProps", "java.util.Map<java.lang.String,java.lang.Integer>");
+        MetadataSnapshot snapshot = MetadataSnapshot.EMPTY.patch(props.keySet(), props::get);
+        assertSame(props.get("server.context-path"), snapshot.resolve("server.context_path"));
+        // removing either spelling keeps the other resolvable through relaxed names
+        for (String removed : new String[]{"server.context-path", "server.contextPath"}) {
+            MetadataSnapshot patched = snapshot.patch(Collections.singleton(removed), name -> null);
+            ConfigurationMetadataProperty survivor = patched.resolve("server.context_path");
+            assertNotNull(survivor);
+            assertNotEquals(removed, survivor.getId());
+            assertEquals(survivor, patched.resolve("server.context-path"));
+        }
+        MetadataSnapshot patched = snapshot.patch(Collections.singleton("app.extra-props"), name -> null);
+        assertSame(props.get("app.extraProps"), patched.findMapProperty("app.extra-props.key"));
+        assertSame(props.get("app.extraProps"), patched.resolve("app.extra_props.key"));
+        patched = patched.patch(Collections.singleton("app.extraProps"), name -> null);
+        assertNull(patched.findMapProperty("app.extra-props.key"));
+        assertNull(patched.resolve("server.context-path.x"));
+    }
+
+    private static void add(Map<String, ConfigurationMetadataProperty> props, String id, String type) {
+        ConfigurationMetadataProperty prop = new ConfigurationMetadataProperty();
+        prop.setId(id);
+        prop.setType(type);
+        props.put(id, prop);
+    }
+}
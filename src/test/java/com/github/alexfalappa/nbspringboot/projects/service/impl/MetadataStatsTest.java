@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test MetadataStats class.
+ *
+ * @author Alessandro Falappa
+ */
+public class MetadataStatsTest {
+
+    @Test
+    public void testTimer() {
+        System.out.println("timer");
+        MetadataStats.Timer timer = new MetadataStats.Timer();
+        assertEquals(0, timer.avgMillis(), 0);
+        timer.record(2_000_000);
+        timer.record(4_000_000);
+        assertEquals(2, timer.count());
+        assertEquals(3, timer.avgMillis(), 0.001);
+        assertEquals(4, timer.maxMillis());
+        timer.reset();
+        assertEquals(0, timer.count());
+        assertEquals(0, timer.maxMillis());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        System.out.println("histogramPercentiles");
+        MetadataStats.Histogram histogram = new MetadataStats.Histogram();
+        assertEquals(0, histogram.percentileMicros(50));
+        for (int i = 0; i < 98; i++) {
+            histogram.record(3_000);
+        }
+        histogram.record(100_000);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(100, histogram.count());
+        assertEquals(4, histogram.percentileMicros(50));
+        assertEquals(128, histogram.percentileMicros(99));
+        assertEquals(1L << 23, histogram.percentileMicros(100));
+    }
+
+    @Test
+    public void testRatiosAndReset() throws Exception {
+        System.out.println("ratiosAndReset");
+        MetadataStats stats = MetadataStats.getDefault();
+        stats.reset();
+        assertEquals(0, stats.getIndexHitRatio(), 0);
+        stats.indexHits.add(3);
+        stats.indexMisses.increment();
+        assertEquals(0.75, stats.getIndexHitRatio(), 0.001);
+        assertTrue(stats.getReport().contains("75.0%"));
+        assertEquals(0.75, (Double) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(MetadataStats.OBJECT_NAME), "IndexHitRatio"), 0.001);
+        stats.reset();
+        assertEquals(0, stats.getIndexHitRatio(), 0);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.alexfalappa.nbspringboot.projects.service.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test PrefixTrie class.
+ *
+ * @author Alessandro Falappa
+ */
+public class PrefixTrieTest {
+
+    @Test
+    public void testLongestPrefixOf() {
+        System.out.println("longestPrefixOf");
+        PrefixTrie<String> trie = new PrefixTrie<String>()
+                .put("logging.level", "A")
+                .put("spring.jpa.properties", "B")
+                .put("spring.jpa.properties.hibernate", "C");
+        assertEquals("A", trie.longestPrefixOf("logging.level.com.acme.foo"));
+        assertEquals("A", trie.longestPrefixOf("logging.level[com.acme]"));
+        assertEquals("B", trie.longestPrefixOf("spring.jpa.properties.x"));
+        assertEquals("C", trie.longestPrefixOf("spring.jpa.properties.hibernate.x"));
+        assertNull(trie.longestPrefixOf("logging.level"));
+        assertNull(trie.longestPrefixOf("logging.levels.x"));
+        assertNull(trie.longestPrefixOf("spring.jpa.x"));
+        PrefixTrie<String> removed = trie.remove("spring.jpa.properties.hibernate");
+        assertEquals("B", removed.longestPrefixOf("spring.jpa.properties.hibernate.x"));
+        assertSame(removed, removed.remove("spring.jpa.properties.hibernate"));
+        assertSame(removed, removed.remove("spring.jpa"));
+        removed = removed.remove("spring.jpa.properties").remove("logging.level");
+        assertNull(removed.longestPrefixOf("logging.level.com"));
+        assertNull(removed.longestPrefixOf("spring.jpa.properties.x"));
+    }
+
+    @Test
+    public void testUpdatesLeaveOriginal() {
+        System.out.println("updatesLeaveOriginal");
+        PrefixTrie<String> trie = new PrefixTrie<String>().put("logging.level", "A").put("logging.group", "B");
+        PrefixTrie<String> replaced = trie.put("logging.level", "C");
+        PrefixTrie<String> removed = trie.remove("logging.group");
+        assertEquals("A", trie.longestPrefixOf("logging.level.com"));
+        assertEquals("B", trie.longestPrefixOf("logging.group.web"));
+        assertEquals("C", replaced.longestPrefixOf("logging.level.com"));
+        assertEquals("B", replaced.longestPrefixOf("logging.group.web"));
+        assertNull(removed.longestPrefixOf("logging.group.web"));
+        assertEquals("A", removed.longestPrefixOf("logging.level.com"));
+    }
+}